@@ -0,0 +1,166 @@
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+* Length-prefixed binary framing for SerialServer's TCP side.
+*
+* Mirrors SerialCommunication's serial frame with the port name added, so
+* values travel as raw bytes instead of hex text and nothing is tokenised.
+*
+* Negotiation: a client sends the text line "PROTOCOL BINARY"; the server
+* answers with the same line, and from the next byte on both directions use
+* frames. Clients that never ask keep the text line protocol.
+*
+* Frame layout (all integers big-endian):
+*  -----------------------------------------------------
+*  | portLen (4) | keyLen (4) | valueLen (4) |         |
+*  | port (portLen bytes, UTF-8)                       |
+*  | key (keyLen bytes, UTF-8)                         |
+*  | value (valueLen bytes)                            |
+*  | type (1): 0 = TEXT, 1 = BINARY, 2 = CONTROL       |
+*  -----------------------------------------------------
+*
+* TEXT/BINARY frames are data for (client -> server) or from (server -> client)
+* the named serial port. CONTROL frames carry one text-protocol line as their
+* value with empty port and key: commands such as HEARTBEAT or QUIT from the
+* client, replies, errors and heartbeats from the server.
+*/
+public final class BinaryTcpProtocol {
+
+	public static final String NEGOTIATION = "PROTOCOL BINARY";
+
+	public static final byte TYPE_TEXT = 0;
+	public static final byte TYPE_BINARY = 1;
+	public static final byte TYPE_CONTROL = 2;
+
+	public static final int HEADER_SIZE = 12;
+	public static final int MAX_PORT_LENGTH = 256;
+	public static final int MAX_KEY_LENGTH = 1024;
+	public static final int MAX_VALUE_LENGTH = 64 * 1024;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	/**
+	* Called for every complete frame; return false to stop decoding.
+	*/
+	public interface FrameHandler {
+		boolean onFrame(String port, String key, byte[] value, byte type);
+	}
+
+	private BinaryTcpProtocol() {
+	}
+
+	public static byte[] encode(String port, String key, byte[] value, byte type) {
+		byte[] portBytes = port.getBytes(StandardCharsets.UTF_8);
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		String error = lengthError(portBytes.length, keyBytes.length, value.length);
+		if (error != null) {
+			throw new IllegalArgumentException(error);
+		}
+
+		ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + portBytes.length + keyBytes.length + value.length + 1);
+		frame.putInt(portBytes.length).putInt(keyBytes.length).putInt(value.length)
+		.put(portBytes).put(keyBytes).put(value).put(type);
+		return frame.array();
+	}
+
+	public static byte[] encodeControl(String line) {
+		return encode("", "", line.getBytes(StandardCharsets.UTF_8), TYPE_CONTROL);
+	}
+
+	// Null if the lengths are within limits
+	private static String lengthError(int portLen, int keyLen, int valueLen) {
+		if (portLen < 0 || portLen > MAX_PORT_LENGTH) {
+			return "Invalid port length: " + portLen;
+		}
+		if (keyLen < 0 || keyLen > MAX_KEY_LENGTH) {
+			return "Invalid key length: " + keyLen;
+		}
+		if (valueLen < 0 || valueLen > MAX_VALUE_LENGTH) {
+			return "Invalid value length: " + valueLen;
+		}
+		return null;
+	}
+
+	/**
+	* Incremental frame decoder: feed it whatever bytes arrived, in any chunking.
+	* A ProtocolException means framing is lost and the connection must be closed.
+	*/
+	public static final class Decoder {
+		private enum State { HEADER, NAMES, VALUE, TYPE }
+
+		private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		private byte[] names = new byte[64]; // port + key, reused
+		private int portLength, keyLength, position;
+		private byte[] value;
+		private State state = State.HEADER;
+
+		/**
+		* Consume bytes from in until it is empty or the handler returns false.
+		*/
+		public boolean feed(ByteBuffer in, FrameHandler handler) throws ProtocolException {
+			while (in.hasRemaining()) {
+				switch (state) {
+					case HEADER:
+						while (header.hasRemaining() && in.hasRemaining()) {
+							header.put(in.get());
+						}
+						if (header.hasRemaining()) {
+							return true;
+						}
+						header.flip();
+						portLength = header.getInt();
+						keyLength = header.getInt();
+						int valueLength = header.getInt();
+						header.clear();
+						String error = lengthError(portLength, keyLength, valueLength);
+						if (error != null) {
+							throw new ProtocolException(error);
+						}
+						if (names.length < portLength + keyLength) {
+							names = new byte[portLength + keyLength];
+						}
+						value = valueLength == 0 ? EMPTY : new byte[valueLength];
+						position = 0;
+						state = State.NAMES;
+						break;
+
+					case NAMES:
+						position += copy(in, names, position, portLength + keyLength);
+						if (position == portLength + keyLength) {
+							position = 0;
+							state = State.VALUE;
+						}
+						break;
+
+					case VALUE:
+						position += copy(in, value, position, value.length);
+						if (position == value.length) {
+							state = State.TYPE;
+						}
+						break;
+
+					case TYPE:
+						byte type = in.get();
+						String port = new String(names, 0, portLength, StandardCharsets.UTF_8);
+						String key = new String(names, portLength, keyLength, StandardCharsets.UTF_8);
+						byte[] frameValue = value;
+						value = null;
+						state = State.HEADER;
+						if (!handler.onFrame(port, key, frameValue, type)) {
+							return false;
+						}
+						break;
+				}
+			}
+			return true;
+		}
+
+		private static int copy(ByteBuffer in, byte[] dst, int offset, int end) {
+			int n = Math.min(in.remaining(), end - offset);
+			in.get(dst, offset, n);
+			return n;
+		}
+	}
+}
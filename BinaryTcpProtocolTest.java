@@ -0,0 +1,145 @@
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+* Checks for BinaryTcpProtocol framing and its incremental Decoder. No test
+* framework: run with `java BinaryTcpProtocolTest`, a failed check throws and
+* the exit status is non-zero.
+*/
+public class BinaryTcpProtocolTest {
+
+	private static final String PORT = "/dev/ttyTEST";
+
+	public static void main(String[] args) throws Exception {
+		framesInAnyChunking();
+		lengthBounds();
+		rejectsBadHeaders();
+		handlerStopsDecoding();
+		System.out.println("All BinaryTcpProtocol checks passed");
+	}
+
+	// The same stream fed whole, byte by byte and in odd pieces gives the same frames
+	static void framesInAnyChunking() throws Exception {
+		byte[] value = new byte[3000];
+		Arrays.fill(value, (byte) 0xA5);
+		byte[] stream = concat(
+		BinaryTcpProtocol.encode(PORT, "LED", "ON".getBytes(StandardCharsets.UTF_8), BinaryTcpProtocol.TYPE_TEXT),
+		BinaryTcpProtocol.encode(PORT, "DATA", value, BinaryTcpProtocol.TYPE_BINARY),
+		BinaryTcpProtocol.encodeControl("HEARTBEAT"));
+		for (int chunk : new int[] { stream.length, 1, 7, 1000 }) {
+			List<String> frames = decode(new BinaryTcpProtocol.Decoder(), stream, chunk);
+			check(frames.equals(List.of(
+			PORT + " LED 2 0",
+			PORT + " DATA 3000 1",
+			"  9 2")), "frames fed in chunks of " + chunk + ": " + frames);
+		}
+		System.out.println("ok framesInAnyChunking");
+	}
+
+	// Lengths up to the limits (and zero) pass; one past a limit does not encode
+	static void lengthBounds() throws Exception {
+		byte[] largest = BinaryTcpProtocol.encode("p".repeat(BinaryTcpProtocol.MAX_PORT_LENGTH),
+		"k".repeat(BinaryTcpProtocol.MAX_KEY_LENGTH), new byte[BinaryTcpProtocol.MAX_VALUE_LENGTH],
+		BinaryTcpProtocol.TYPE_BINARY);
+		byte[] empty = BinaryTcpProtocol.encode("", "", new byte[0], BinaryTcpProtocol.TYPE_TEXT);
+		check(empty.length == BinaryTcpProtocol.HEADER_SIZE + 1, "empty frame is a header and a type byte");
+		List<String> frames = decode(new BinaryTcpProtocol.Decoder(), concat(largest, empty), 4096);
+		check(frames.size() == 2 && frames.get(0).endsWith(" " + BinaryTcpProtocol.MAX_VALUE_LENGTH + " 1")
+		&& frames.get(1).equals("  0 0"), "frames at the limits decoded");
+
+		checkEncodeRejected("p".repeat(BinaryTcpProtocol.MAX_PORT_LENGTH + 1), "k", 0, "port too long");
+		checkEncodeRejected(PORT, "k".repeat(BinaryTcpProtocol.MAX_KEY_LENGTH + 1), 0, "key too long");
+		checkEncodeRejected(PORT, "k", BinaryTcpProtocol.MAX_VALUE_LENGTH + 1, "value too long");
+		System.out.println("ok lengthBounds");
+	}
+
+	// A header with a negative or oversized length loses framing: ProtocolException,
+	// raised as soon as the 12 header bytes are in, before any payload is buffered
+	static void rejectsBadHeaders() throws Exception {
+		checkHeaderRejected(-1, 0, 0, "negative port length");
+		checkHeaderRejected(BinaryTcpProtocol.MAX_PORT_LENGTH + 1, 0, 0, "port length");
+		checkHeaderRejected(0, BinaryTcpProtocol.MAX_KEY_LENGTH + 1, 0, "key length");
+		checkHeaderRejected(0, 0, BinaryTcpProtocol.MAX_VALUE_LENGTH + 1, "value length");
+		checkHeaderRejected(0, 0, Integer.MIN_VALUE, "negative value length");
+
+		// 11 header bytes are not enough to judge yet
+		byte[] header = ByteBuffer.allocate(BinaryTcpProtocol.HEADER_SIZE).putInt(0).putInt(0).putInt(-1).array();
+		BinaryTcpProtocol.Decoder decoder = new BinaryTcpProtocol.Decoder();
+		check(decoder.feed(ByteBuffer.wrap(header, 0, header.length - 1), (p, k, v, t) -> true), "partial header waits");
+		try {
+			decoder.feed(ByteBuffer.wrap(header, header.length - 1, 1), (p, k, v, t) -> true);
+			check(false, "completed bad header rejected");
+		} catch (ProtocolException expected) {
+		}
+		System.out.println("ok rejectsBadHeaders");
+	}
+
+	// Returning false from the handler stops at that frame and leaves the rest unread
+	static void handlerStopsDecoding() throws Exception {
+		byte[] quit = BinaryTcpProtocol.encodeControl("QUIT");
+		byte[] next = BinaryTcpProtocol.encodeControl("HEARTBEAT");
+		ByteBuffer in = ByteBuffer.wrap(concat(quit, next));
+		List<String> lines = new ArrayList<>();
+		boolean more = new BinaryTcpProtocol.Decoder().feed(in, (p, k, v, t) -> {
+			lines.add(new String(v, StandardCharsets.UTF_8));
+			return false;
+		});
+		check(!more && lines.equals(List.of("QUIT")), "stopped after the first frame");
+		check(in.remaining() == next.length, "next frame left in the buffer");
+		System.out.println("ok handlerStopsDecoding");
+	}
+
+	// "port key valueLength type" per frame, feeding `chunk` bytes at a time
+	private static List<String> decode(BinaryTcpProtocol.Decoder decoder, byte[] stream, int chunk)
+	throws ProtocolException {
+		List<String> frames = new ArrayList<>();
+		for (int offset = 0; offset < stream.length; offset += chunk) {
+			ByteBuffer in = ByteBuffer.wrap(stream, offset, Math.min(chunk, stream.length - offset));
+			decoder.feed(in, (port, key, value, type) -> frames.add(port + " " + key + " " + value.length + " " + type));
+			check(!in.hasRemaining(), "chunk consumed");
+		}
+		return frames;
+	}
+
+	private static void checkHeaderRejected(int portLength, int keyLength, int valueLength, String what) {
+		byte[] header = ByteBuffer.allocate(BinaryTcpProtocol.HEADER_SIZE)
+		.putInt(portLength).putInt(keyLength).putInt(valueLength).array();
+		try {
+			new BinaryTcpProtocol.Decoder().feed(ByteBuffer.wrap(header), (p, k, v, t) -> true);
+		} catch (ProtocolException expected) {
+			return;
+		}
+		throw new AssertionError("Check failed: bad " + what + " rejected");
+	}
+
+	private static void checkEncodeRejected(String port, String key, int valueLength, String what) {
+		try {
+			BinaryTcpProtocol.encode(port, key, new byte[valueLength], BinaryTcpProtocol.TYPE_BINARY);
+		} catch (IllegalArgumentException expected) {
+			return;
+		}
+		throw new AssertionError("Check failed: " + what + " rejected");
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		int length = 0;
+		for (byte[] part : parts) {
+			length += part.length;
+		}
+		ByteBuffer all = ByteBuffer.allocate(length);
+		for (byte[] part : parts) {
+			all.put(part);
+		}
+		return all.array();
+	}
+
+	private static void check(boolean condition, String what) {
+		if (!condition) {
+			throw new AssertionError("Check failed: " + what);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+* How SerialServer and SerialCommunication run their long-lived loops.
+*
+* PLATFORM: one platform thread per loop (the original behaviour).
+* VIRTUAL:  virtual threads (Java 21+) for loops that mostly wait on Java
+*           blocking calls (sockets, queues, sleeps). Loops that sit inside
+*           native serial calls would pin a carrier thread, so they stay on
+*           platform threads with a small stack (see newNativeIoThread).
+*
+* The virtual thread API is looked up reflectively so the sources still build
+* and run on Java 17; there VIRTUAL falls back to platform threads.
+*/
+public enum ExecutionMode {
+	PLATFORM,
+	VIRTUAL;
+
+	private static final long NATIVE_IO_STACK_SIZE = 256 * 1024;
+
+	private static final Method OF_VIRTUAL = method("java.lang.Thread", "ofVirtual");
+	private static final Method BUILDER_NAME = method("java.lang.Thread$Builder", "name", String.class);
+	private static final Method BUILDER_UNSTARTED = method("java.lang.Thread$Builder", "unstarted", Runnable.class);
+	private static final Method NEW_VIRTUAL_EXECUTOR = method("java.util.concurrent.Executors", "newVirtualThreadPerTaskExecutor");
+
+	/**
+	* True if this JVM can create virtual threads.
+	*/
+	public static boolean virtualThreadsSupported() {
+		return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_UNSTARTED != null
+		&& NEW_VIRTUAL_EXECUTOR != null;
+	}
+
+	/**
+	* Parse "platform" / "virtual" (case-insensitive).
+	*/
+	public static ExecutionMode parse(String name) {
+		ExecutionMode mode = valueOf(name.trim().toUpperCase());
+		if (mode == VIRTUAL && !virtualThreadsSupported()) {
+			System.err.println("[WARN] Virtual threads need Java 21+, falling back to platform threads");
+			return PLATFORM;
+		}
+		return mode;
+	}
+
+	/**
+	* Unstarted thread for a loop that blocks in Java (sockets, queues, sleeps).
+	*/
+	public Thread newThread(String name, Runnable task) {
+		if (this == VIRTUAL && virtualThreadsSupported()) {
+			try {
+				Object builder = OF_VIRTUAL.invoke(null);
+				builder = BUILDER_NAME.invoke(builder, name);
+				return (Thread) BUILDER_UNSTARTED.invoke(builder, task);
+			} catch (ReflectiveOperationException e) {
+				System.err.println("[WARN] Could not create virtual thread: " + e.getMessage());
+			}
+		}
+		return new Thread(task, name);
+	}
+
+	/**
+	* Unstarted thread for a loop that spends its time inside native serial calls.
+	* Always a platform thread; in VIRTUAL mode it gets a small stack so hundreds
+	* of ports stay cheap.
+	*/
+	public Thread newNativeIoThread(String name, Runnable task) {
+		if (this == VIRTUAL) {
+			return new Thread(null, task, name, NATIVE_IO_STACK_SIZE);
+		}
+		return new Thread(task, name);
+	}
+
+	/**
+	* Executor for short tasks: one virtual thread per task, or a cached pool of
+	* daemon platform threads named `<namePrefix>-<n>`.
+	*/
+	public ExecutorService newTaskExecutor(String namePrefix) {
+		if (this == VIRTUAL && virtualThreadsSupported()) {
+			try {
+				return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				System.err.println("[WARN] Could not create virtual thread executor: " + e.getMessage());
+			}
+		}
+		AtomicInteger counter = new AtomicInteger();
+		return Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	// Public method by name, or null if this JVM does not have it
+	private static Method method(String className, String name, Class<?>... parameterTypes) {
+		try {
+			return Class.forName(className).getMethod(name, parameterTypes);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
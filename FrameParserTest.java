@@ -0,0 +1,119 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+* Checks for SerialCommunication.FrameParser, fed the way the read thread feeds
+* it (straight into its ring, in whatever pieces arrive). No test framework:
+* run with `java -cp .:jSerialComm-2.11.0.jar FrameParserTest`, a failed check
+* throws and the exit status is non-zero.
+*/
+public class FrameParserTest {
+
+	private static final String PORT = "/dev/ttyTEST";
+
+	public static void main(String[] args) {
+		splitFrames();
+		ringWrapAround();
+		badHeaderResync();
+		System.out.println("All FrameParser checks passed");
+	}
+
+	// One byte per read: nothing comes out until the type byte, then exactly one frame
+	static void splitFrames() {
+		SerialCommunication.FrameParser parser = new SerialCommunication.FrameParser(PORT);
+		byte[] frame = frame("LED", "ON".getBytes(StandardCharsets.US_ASCII), 0);
+		for (int i = 0; i < frame.length - 1; i++) {
+			check(feed(parser, frame, i, 1).isEmpty(), "no frame after " + (i + 1) + " bytes");
+		}
+		List<SerialCommunication.Message> frames = feed(parser, frame, frame.length - 1, 1);
+		check(frames.size() == 1, "one frame after the type byte");
+		checkFrame(frames.get(0), "LED", "ON".getBytes(StandardCharsets.US_ASCII),
+		SerialCommunication.MessageType.TEXT, "split frame");
+		System.out.println("ok splitFrames");
+	}
+
+	// Frames of odd sizes, pushed through several laps of the 8 KB ring, so
+	// headers, keys and values all land across its end at some point
+	static void ringWrapAround() {
+		SerialCommunication.FrameParser parser = new SerialCommunication.FrameParser(PORT);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		List<byte[]> values = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			byte[] value = new byte[1 + (i * 397) % 1500];
+			Arrays.fill(value, (byte) i);
+			values.add(value);
+			stream.writeBytes(frame("K" + i, value, 1));
+		}
+		byte[] bytes = stream.toByteArray();
+		check(bytes.length > 4 * 8192, "stream laps the ring");
+
+		List<SerialCommunication.Message> frames = new ArrayList<>();
+		for (int offset = 0, piece = 1; offset < bytes.length; offset += piece, piece = piece % 977 + 311) {
+			frames.addAll(feed(parser, bytes, offset, Math.min(piece, bytes.length - offset)));
+		}
+		check(frames.size() == values.size(), "every frame decoded (" + frames.size() + " of " + values.size() + ")");
+		for (int i = 0; i < frames.size(); i++) {
+			checkFrame(frames.get(i), "K" + i, values.get(i), SerialCommunication.MessageType.BINARY, "frame " + i);
+		}
+		System.out.println("ok ringWrapAround");
+	}
+
+	// A header with impossible lengths is skipped, and the frame after it still decodes
+	static void badHeaderResync() {
+		SerialCommunication.FrameParser parser = new SerialCommunication.FrameParser(PORT);
+		byte[] bad = ByteBuffer.allocate(8).putInt(0).putInt(1).array();
+		byte[] good = frame("K", new byte[] { 'v' }, 0);
+		byte[] bytes = new byte[bad.length + good.length];
+		System.arraycopy(bad, 0, bytes, 0, bad.length);
+		System.arraycopy(good, 0, bytes, bad.length, good.length);
+
+		List<SerialCommunication.Message> frames = feed(parser, bytes, 0, bytes.length);
+		check(frames.size() == 1, "one frame after the bad header");
+		checkFrame(frames.get(0), "K", new byte[] { 'v' }, SerialCommunication.MessageType.TEXT, "resynced frame");
+		System.out.println("ok badHeaderResync");
+	}
+
+	// Serial frame: keyLen (4) | valueLen (4) | key | value | type (1)
+	private static byte[] frame(String key, byte[] value, int type) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		return ByteBuffer.allocate(8 + keyBytes.length + value.length + 1)
+		.putInt(keyBytes.length).putInt(value.length).put(keyBytes).put(value).put((byte) type).array();
+	}
+
+	// Copy bytes[offset, offset + length) into the ring as the read thread does,
+	// taking frames out whenever it fills up
+	private static List<SerialCommunication.Message> feed(SerialCommunication.FrameParser parser,
+	byte[] bytes, int offset, int length) {
+		List<SerialCommunication.Message> frames = new ArrayList<>();
+		while (length > 0) {
+			int n = Math.min(length, parser.writableBytes());
+			System.arraycopy(bytes, offset, parser.buffer(), parser.writeOffset(), n);
+			parser.commit(n);
+			offset += n;
+			length -= n;
+			SerialCommunication.Message frame;
+			while ((frame = parser.next()) != null) {
+				frames.add(frame);
+			}
+		}
+		return frames;
+	}
+
+	private static void checkFrame(SerialCommunication.Message frame, String key, byte[] value,
+	SerialCommunication.MessageType type, String what) {
+		check(key.equals(frame.getKey()), what + " key");
+		check(Arrays.equals(value, frame.getValue()), what + " value");
+		check(frame.getType() == type, what + " type");
+		check(PORT.equals(frame.getSourcePort()), what + " port");
+	}
+
+	private static void check(boolean condition, String what) {
+		if (!condition) {
+			throw new AssertionError("Check failed: " + what);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+* Table-driven hex encoding for BINARY payloads.
+*
+* Encoding writes uppercase digits into caller-supplied char/byte arrays (or one
+* new String); decoding validates strictly (ASCII hex digits only, even count)
+* and writes into a single preallocated byte array. No regex, substrings or
+* per-byte parsing, so a 4 KB frame costs one or two allocations.
+*
+* Text form accepted by decode: hex digit pairs, optionally separated by spaces
+* or tabs ("DEADBEEF", "DE AD BE EF"); a pair may not be split by whitespace.
+*/
+public final class HexCodec {
+
+	private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+	private static final byte[] DIGIT_BYTES = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+	// ASCII character -> nibble value, -1 if not a hex digit
+	private static final byte[] NIBBLES = new byte[128];
+
+	static {
+		Arrays.fill(NIBBLES, (byte) -1);
+		for (int i = 0; i < 10; i++) {
+			NIBBLES['0' + i] = (byte) i;
+		}
+		for (int i = 0; i < 6; i++) {
+			NIBBLES['A' + i] = (byte) (10 + i);
+			NIBBLES['a' + i] = (byte) (10 + i);
+		}
+	}
+
+	private HexCodec() {
+	}
+
+	/**
+	* Nibble value of a hex digit, or -1 if c is not [0-9A-Fa-f]
+	*/
+	public static int digit(char c) {
+		return c < 128 ? NIBBLES[c] : -1;
+	}
+
+	/**
+	* Encode data[offset, offset + length) as uppercase hex into dst starting at
+	* dstOffset. Returns the index after the last written char.
+	*/
+	public static int encode(byte[] data, int offset, int length, char[] dst, int dstOffset) {
+		for (int i = offset; i < offset + length; i++) {
+			dst[dstOffset++] = DIGITS[(data[i] >> 4) & 0xF];
+			dst[dstOffset++] = DIGITS[data[i] & 0xF];
+		}
+		return dstOffset;
+	}
+
+	/**
+	* Same as above, writing ASCII bytes (e.g. straight into an output line).
+	*/
+	public static int encode(byte[] data, int offset, int length, byte[] dst, int dstOffset) {
+		for (int i = offset; i < offset + length; i++) {
+			dst[dstOffset++] = DIGIT_BYTES[(data[i] >> 4) & 0xF];
+			dst[dstOffset++] = DIGIT_BYTES[data[i] & 0xF];
+		}
+		return dstOffset;
+	}
+
+	public static String encode(byte[] data, int offset, int length) {
+		char[] hex = new char[length * 2];
+		encode(data, offset, length, hex, 0);
+		return new String(hex);
+	}
+
+	public static String encode(byte[] data) {
+		return encode(data, 0, data.length);
+	}
+
+	public static void appendTo(StringBuilder sb, byte[] data, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			sb.append(DIGITS[(data[i] >> 4) & 0xF]).append(DIGITS[data[i] & 0xF]);
+		}
+	}
+
+	/**
+	* Number of bytes hex[start, end) decodes to. Throws IllegalArgumentException
+	* if the text is not valid (see class comment).
+	*/
+	public static int decodedLength(CharSequence hex, int start, int end) {
+		int bytes = 0;
+		int i = start;
+		while (i < end) {
+			char c = hex.charAt(i);
+			if (c == ' ' || c == '\t') {
+				i++;
+				continue;
+			}
+			if (digit(c) < 0) {
+				throw invalidCharacter(c, i);
+			}
+			if (i + 1 >= end) {
+				throw new IllegalArgumentException("Hex string must have an even number of characters");
+			}
+			char low = hex.charAt(i + 1);
+			if (digit(low) < 0) {
+				throw (low == ' ' || low == '\t')
+				? new IllegalArgumentException("Hex digit pair split by whitespace at index " + i)
+				: invalidCharacter(low, i + 1);
+			}
+			bytes++;
+			i += 2;
+		}
+		return bytes;
+	}
+
+	/**
+	* Decode hex[start, end) into dst starting at dstOffset. Returns the number of
+	* bytes written. The text is validated before anything is written.
+	*/
+	public static int decode(CharSequence hex, int start, int end, byte[] dst, int dstOffset) {
+		int length = decodedLength(hex, start, end);
+		if (dstOffset + length > dst.length) {
+			throw new IllegalArgumentException("Destination too small: need " + length + " bytes");
+		}
+		fill(hex, start, end, dst, dstOffset);
+		return length;
+	}
+
+	public static byte[] decode(CharSequence hex) {
+		byte[] data = new byte[decodedLength(hex, 0, hex.length())];
+		fill(hex, 0, hex.length(), data, 0);
+		return data;
+	}
+
+	// Decode already validated text
+	private static void fill(CharSequence hex, int start, int end, byte[] dst, int out) {
+		for (int i = start; i < end; i++) {
+			char c = hex.charAt(i);
+			if (c == ' ' || c == '\t') {
+				continue;
+			}
+			dst[out++] = (byte) ((NIBBLES[c] << 4) | NIBBLES[hex.charAt(++i)]);
+		}
+	}
+
+	private static IllegalArgumentException invalidCharacter(char c, int index) {
+		return new IllegalArgumentException(String.format("Invalid hex character '%c' at index %d", c, index));
+	}
+}
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/**
+* Checks for HexCodec. No test framework: run with `java HexCodecTest`, a
+* failed check throws and the exit status is non-zero.
+*/
+public class HexCodecTest {
+
+	public static void main(String[] args) {
+		roundTrip();
+		separators();
+		rejectsInvalidText();
+		decodeIntoRange();
+		System.out.println("All HexCodec checks passed");
+	}
+
+	// Every byte value, encoded as uppercase and decoded back from either case
+	static void roundTrip() {
+		byte[] data = new byte[256];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		String hex = HexCodec.encode(data);
+		check(hex.length() == 512 && hex.startsWith("000102") && hex.endsWith("FDFEFF"), "uppercase encoding");
+		check(Arrays.equals(data, HexCodec.decode(hex)), "uppercase round trip");
+		check(Arrays.equals(data, HexCodec.decode(hex.toLowerCase())), "lowercase round trip");
+
+		byte[] ascii = new byte[4];
+		check(HexCodec.encode(new byte[] { (byte) 0xDE, (byte) 0xAD }, 0, 2, ascii, 0) == 4
+		&& "DEAD".equals(new String(ascii)), "encode into ASCII bytes");
+		check(HexCodec.decode("").length == 0, "empty text");
+		System.out.println("ok roundTrip");
+	}
+
+	// Spaces and tabs between pairs are skipped
+	static void separators() {
+		byte[] expected = { (byte) 0xDE, (byte) 0xAD, (byte) 0xBE, (byte) 0xEF };
+		check(Arrays.equals(expected, HexCodec.decode("DE AD BE EF")), "space separated");
+		check(Arrays.equals(expected, HexCodec.decode(" DE\tAD  BEEF ")), "mixed separators");
+		check(HexCodec.decodedLength("  ", 0, 2) == 0, "separators only");
+		System.out.println("ok separators");
+	}
+
+	// Odd digit counts, split pairs and anything but [0-9A-Fa-f ] are rejected
+	static void rejectsInvalidText() {
+		checkRejected("ABC", "odd length");
+		checkRejected("AB C", "odd length after a separator");
+		checkRejected("A BC", "pair split by a space");
+		checkRejected("A\tB", "pair split by a tab");
+		checkRejected("DE:AD", "':' separator");
+		checkRejected("DE-AD", "'-' separator");
+		checkRejected("0xDEAD", "0x prefix");
+		checkRejected("GG", "non-hex letter");
+		checkRejected("DE\nAD", "newline");
+		checkRejected("D\u00C9", "non-ASCII character");
+		System.out.println("ok rejectsInvalidText");
+	}
+
+	// decode(hex, start, end, dst, offset) reads only its range and validates before writing
+	static void decodeIntoRange() {
+		byte[] dst = new byte[4];
+		check(HexCodec.decode("xx0102yy", 2, 6, dst, 1) == 2, "bytes decoded from the range");
+		check(Arrays.equals(new byte[] { 0, 1, 2, 0 }, dst), "written at the offset");
+
+		byte[] untouched = new byte[2];
+		try {
+			HexCodec.decode("01ZZ", 0, 4, untouched, 0);
+			check(false, "invalid range rejected");
+		} catch (IllegalArgumentException expected) {
+		}
+		check(Arrays.equals(new byte[2], untouched), "nothing written for invalid text");
+		try {
+			HexCodec.decode("010203", 0, 6, new byte[2], 0);
+			check(false, "short destination rejected");
+		} catch (IllegalArgumentException expected) {
+		}
+		System.out.println("ok decodeIntoRange");
+	}
+
+	private static void checkRejected(String hex, String what) {
+		try {
+			HexCodec.decode(hex);
+		} catch (IllegalArgumentException expected) {
+			return;
+		}
+		throw new AssertionError("Check failed: " + what + " rejected");
+	}
+
+	private static void check(boolean condition, String what) {
+		if (!condition) {
+			throw new AssertionError("Check failed: " + what);
+		}
+	}
+}
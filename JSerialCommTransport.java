@@ -0,0 +1,55 @@
+import com.fazecast.jSerialComm.SerialPort;
+
+/**
+* A physical (or OS-level virtual) serial port through jSerialComm.
+*/
+class JSerialCommTransport implements SerialTransport {
+	private final String portName;
+	private final Settings settings;
+	private volatile SerialPort serialPort;
+
+	JSerialCommTransport(String portName, Settings settings) {
+		this.portName = portName;
+		this.settings = settings;
+	}
+
+	public boolean open() {
+		serialPort = SerialPort.getCommPort(portName);
+		serialPort.setBaudRate(settings.baudRate);
+		serialPort.setNumDataBits(settings.dataBits);
+		serialPort.setNumStopBits(settings.stopBits);
+		serialPort.setParity(settings.parity);
+
+		// Semi-blocking reads: the read thread sleeps in the driver until at least
+		// one byte arrives (or the read timeout passes) instead of polling.
+		// Blocking writes so a whole frame goes out in one call.
+		serialPort.setComPortTimeouts(SerialPort.TIMEOUT_READ_SEMI_BLOCKING | SerialPort.TIMEOUT_WRITE_BLOCKING,
+		settings.readTimeoutMs, settings.writeTimeoutMs);
+
+		return serialPort.openPort();
+	}
+
+	public boolean isOpen() {
+		SerialPort port = serialPort;
+		return port != null && port.isOpen();
+	}
+
+	public int read(byte[] buffer, int length, int offset) {
+		return serialPort.readBytes(buffer, length, offset);
+	}
+
+	public int available() {
+		return Math.max(serialPort.bytesAvailable(), 0);
+	}
+
+	public int write(byte[] data, int length, int offset) {
+		return serialPort.writeBytes(data, length, offset);
+	}
+
+	public void close() {
+		SerialPort port = serialPort;
+		if (port != null && port.isOpen()) {
+			port.closePort();
+		}
+	}
+}
@@ -0,0 +1,354 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+* End-to-end load test of one SerialServer: N SerialTcpClient connections send
+* TEXT / BINARY / CSV commands at a fixed total rate, and each device ack that
+* comes back as a RECEIVED line is matched to its send.
+*
+* Reports per serial port: messages/s, bytes/s (command lines out, RECEIVED
+* lines in), lost messages and p50/p99/p99.9/max round-trip latency. Sends
+* follow a fixed schedule and latency counts from the scheduled time, so a
+* server that falls behind shows up as latency, not as a lower send rate.
+*
+* CSV acks can only be told apart by one byte, so at most 256 CSV messages per
+* port are in flight; CSV sends beyond that are skipped and reported ("csv skip")
+* instead of being matched to the wrong ack. Subscriptions are restored after a
+* reconnect, but messages in flight across one are counted as lost.
+*
+* Needs a device that acks like pico_codes.ino: an emulated board (emu://...),
+* or the real firmware. Example, against a server started with
+*   java SerialServer 9000 emu://b1 115200 8N1 emu://b2 115200 8N1
+*   java LoadGenerator 127.0.0.1 9000 --clients 16 --rate 2000 --mix text:2,binary:1,csv:1 emu://b1 emu://b2
+*/
+public class LoadGenerator {
+
+	private static final String TEXT_KEY = "lg";     // + client id; ack key is <key>_ack
+	private static final String BINARY_KEY = "lgb";
+	private static final String CSV_ACK_KEY = "LED_TOGGLE_ack";
+	private static final long DRAIN_TIMEOUT_MS = 3000;
+	private static final int CSV_TAGS = 256;         // CSV acks carry one byte to match them by
+	private static final long CSV_TAG_EXPIRY_NANOS = TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MS);
+
+	private enum Kind { TEXT, BINARY, CSV }
+
+	/**
+	* One message waiting for its ack.
+	*/
+	private static final class Pending {
+		final PortStats port;
+		final long scheduledNanos;
+		final boolean measured; // sent after warmup
+
+		Pending(PortStats port, long scheduledNanos, boolean measured) {
+			this.port = port;
+			this.scheduledNanos = scheduledNanos;
+			this.measured = measured;
+		}
+	}
+
+	private static final class PortStats {
+		final String port;
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LongAdder sent = new LongAdder();
+		final LongAdder received = new LongAdder();
+		final LongAdder bytesOut = new LongAdder();
+		final LongAdder bytesIn = new LongAdder();
+		final AtomicInteger csvTag = new AtomicInteger();
+		final LongAdder csvSkipped = new LongAdder(); // CSV sends left out: their tag was still in flight
+
+		PortStats(String port) {
+			this.port = port;
+		}
+	}
+
+	private final String host;
+	private final int tcpPort;
+	private final int clientCount;
+	private final int rate;          // messages per second, all clients together
+	private final int payloadSize;   // TEXT / BINARY value bytes
+	private final Kind[] mix;        // weighted, picked round-robin
+	private final List<PortStats> ports = new ArrayList<>();
+	private final Map<String, PortStats> portsByName = new ConcurrentHashMap<>();
+	private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+	private volatile long measureFromNanos = Long.MAX_VALUE;
+	private volatile boolean sending = true;
+
+	public LoadGenerator(String host, int tcpPort, int clientCount, int rate, int payloadSize, Kind[] mix,
+	List<String> serialPorts) {
+		this.host = host;
+		this.tcpPort = tcpPort;
+		this.clientCount = clientCount;
+		this.rate = rate;
+		this.payloadSize = Math.max(payloadSize, 8);
+		this.mix = mix;
+		for (String port : serialPorts) {
+			PortStats stats = new PortStats(port);
+			ports.add(stats);
+			portsByName.put(port, stats);
+		}
+	}
+
+	public void run(int warmupSeconds, int durationSeconds) throws InterruptedException {
+		SerialTcpClient.ClientConfig config = new SerialTcpClient.ClientConfig.Builder()
+		.verbose(false)
+		.sendQueueCapacity(4096)
+		.build();
+
+		List<SerialTcpClient> clients = new ArrayList<>();
+		List<Thread> senders = new ArrayList<>();
+		long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500); // let connections come up
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) * clientCount / rate;
+
+		for (int id = 0; id < clientCount; id++) {
+			SerialTcpClient client = new SerialTcpClient(config);
+			client.addMessageListener(this::onReceived);
+			// Own acks only, so RECEIVED traffic grows with the send rate, not rate x clients
+			client.subscribe("*", TEXT_KEY + id + "_ack");
+			client.subscribe("*", BINARY_KEY + id + "_ack");
+			if (id == 0) {
+				client.subscribe("*", CSV_ACK_KEY); // the key is fixed; one client collects them all
+			}
+			clients.add(client);
+			Thread connection = new Thread(() -> client.start(host, tcpPort, false), "LoadClient-" + id);
+			connection.setDaemon(true);
+			connection.start();
+
+			// Spread the clients' schedules evenly over one interval
+			long firstSend = startNanos + intervalNanos * id / clientCount;
+			int clientId = id;
+			Thread sender = new Thread(() -> sendLoop(client, clientId, firstSend, intervalNanos), "LoadSender-" + id);
+			sender.setDaemon(true);
+			senders.add(sender);
+		}
+		senders.forEach(Thread::start);
+
+		System.out.printf("[INFO] %d clients, %d msg/s to %d port(s), warmup %d s, measuring %d s%n",
+		clientCount, rate, ports.size(), warmupSeconds, durationSeconds);
+		Thread.sleep(500 + TimeUnit.SECONDS.toMillis(warmupSeconds));
+		measureFromNanos = System.nanoTime();
+		for (int s = 1; s <= durationSeconds; s++) {
+			Thread.sleep(1000);
+			long sent = 0, received = 0;
+			for (PortStats stats : ports) {
+				sent += stats.sent.sum();
+				received += stats.received.sum();
+			}
+			System.out.printf("[INFO] %3d s  sent=%d  received=%d  in flight=%d%n", s, sent, received, measuredInFlight());
+		}
+		long measuredNanos = System.nanoTime() - measureFromNanos;
+		sending = false;
+
+		long drainUntil = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+		while (measuredInFlight() > 0 && System.currentTimeMillis() < drainUntil) {
+			Thread.sleep(50);
+		}
+		report(measuredNanos);
+		clients.forEach(SerialTcpClient::stop);
+	}
+
+	// Measured messages still waiting for their ack. Warmup entries whose ack was
+	// lost stay in `pending` (a CSV tag must not be reused while its old ack could
+	// still arrive) but are not counted.
+	private long measuredInFlight() {
+		long count = 0;
+		for (Pending p : pending.values()) {
+			if (p.measured) count++;
+		}
+		return count;
+	}
+
+	private void sendLoop(SerialTcpClient client, int id, long firstSendNanos, long intervalNanos) {
+		long scheduled = firstSendNanos;
+		int portIndex = id % ports.size();
+		int mixIndex = id % mix.length;
+		try {
+			while (sending) {
+				long wait = scheduled - System.nanoTime();
+				if (wait > 0) {
+					LockSupport.parkNanos(wait);
+					continue;
+				}
+				PortStats port = ports.get(portIndex);
+				send(client, id, port, mix[mixIndex], scheduled);
+				portIndex = (portIndex + 1) % ports.size();
+				mixIndex = (mixIndex + 1) % mix.length;
+				scheduled += intervalNanos;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void send(SerialTcpClient client, int id, PortStats port, Kind kind, long scheduled)
+	throws InterruptedException {
+		boolean measured = scheduled >= measureFromNanos;
+		long seq = sequence.incrementAndGet();
+		String line;
+		switch (kind) {
+			case TEXT: {
+				// "<seq>.....", acked as "<seq>....._ack"
+				StringBuilder value = new StringBuilder(payloadSize).append(seq);
+				while (value.length() < payloadSize) value.append('.');
+				pending.put(port.port + " T" + seq, new Pending(port, scheduled, measured));
+				client.sendText(port.port, TEXT_KEY + id, value.toString());
+				line = "TEXT " + port.port + " " + TEXT_KEY + id + " " + value;
+				break;
+			}
+			case BINARY: {
+				// 8-byte sequence number, then zeros; acked with the same bytes
+				byte[] value = new byte[payloadSize];
+				for (int i = 0; i < 8; i++) {
+					value[i] = (byte) (seq >>> (56 - 8 * i));
+				}
+				pending.put(port.port + " B" + seq, new Pending(port, scheduled, measured));
+				client.sendBinary(port.port, BINARY_KEY + id, value, value.length);
+				line = "BINARY " + port.port + " " + BINARY_KEY + id + " " + HexCodec.encode(value);
+				break;
+			}
+			default: {
+				// Zero toggles (no blinking); the delay byte tags the ack
+				// CSV_TAGS in flight per port at most: skip (and report) rather than let an older
+				// ack match a newer send. A tag unanswered for DRAIN_TIMEOUT_MS counts as lost and is reused.
+				int tag = port.csvTag.getAndIncrement() & (CSV_TAGS - 1);
+				String key = port.port + " C" + tag;
+				Pending previous = pending.get(key);
+				if (previous != null && scheduled - previous.scheduledNanos < CSV_TAG_EXPIRY_NANOS) {
+					if (measured) port.csvSkipped.increment();
+					return;
+				}
+				pending.put(key, new Pending(port, scheduled, measured));
+				client.sendCsv(port.port, 0, tag);
+				line = "CSV " + port.port + " LED_TOGGLE 0," + tag;
+				break;
+			}
+		}
+		if (measured) {
+			port.sent.increment();
+			port.bytesOut.add(line.length() + 1);
+		}
+	}
+
+	// "RECEIVED <TEXT|BINARY> <port> <key> <value>"
+	private void onReceived(String line) {
+		String[] parts = line.split(" ", 5);
+		if (parts.length < 5 || portsByName.get(parts[2]) == null) {
+			return;
+		}
+		String port = parts[2];
+		String key = parts[3];
+		String value = parts[4];
+		String id;
+		try {
+			if (key.equals(CSV_ACK_KEY)) {
+				byte[] data = HexCodec.decode(value);
+				if (data.length < 2) return;
+				id = " C" + (data[1] & 0xFF);
+			} else if (key.startsWith(BINARY_KEY) && parts[1].equals("BINARY")) {
+				byte[] data = HexCodec.decode(value);
+				if (data.length < 8) return;
+				long seq = 0;
+				for (int i = 0; i < 8; i++) {
+					seq = (seq << 8) | (data[i] & 0xFF);
+				}
+				id = " B" + seq;
+			} else if (key.startsWith(TEXT_KEY) && parts[1].equals("TEXT")) {
+				int end = 0;
+				while (end < value.length() && Character.isDigit(value.charAt(end))) end++;
+				id = " T" + value.substring(0, end);
+			} else {
+				return;
+			}
+		} catch (IllegalArgumentException e) {
+			return;
+		}
+
+		Pending sent = pending.remove(port + id);
+		if (sent != null && sent.measured) {
+			long now = System.nanoTime();
+			sent.port.latency.record(now - sent.scheduledNanos);
+			sent.port.received.increment();
+			sent.port.bytesIn.add(line.length() + 1);
+		}
+	}
+
+	private void report(long measuredNanos) {
+		double seconds = measuredNanos / 1e9;
+		System.out.println();
+		System.out.printf("%-24s %9s %9s %7s %8s %10s %11s %11s %9s %9s %9s %9s%n",
+		"port", "sent", "received", "lost", "csv skip", "msg/s", "out B/s", "in B/s",
+		"p50 ms", "p99 ms", "p99.9 ms", "max ms");
+		for (PortStats stats : ports) {
+			long sent = stats.sent.sum();
+			long received = stats.received.sum();
+			LatencyHistogram h = stats.latency;
+			System.out.printf("%-24s %9d %9d %7d %8d %10.1f %11.0f %11.0f %9.2f %9.2f %9.2f %9.2f%n",
+			stats.port, sent, received, sent - received, stats.csvSkipped.sum(), received / seconds,
+			stats.bytesOut.sum() / seconds, stats.bytesIn.sum() / seconds,
+			millis(h.percentile(50)), millis(h.percentile(99)), millis(h.percentile(99.9)), millis(h.max()));
+		}
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+
+	private static Kind[] parseMix(String spec) {
+		List<Kind> kinds = new ArrayList<>();
+		for (String part : spec.split(",")) {
+			String[] kv = part.split(":");
+			Kind kind = Kind.valueOf(kv[0].trim().toUpperCase());
+			int weight = (kv.length > 1) ? Integer.parseInt(kv[1].trim()) : 1;
+			for (int i = 0; i < weight; i++) {
+				kinds.add(kind);
+			}
+		}
+		if (kinds.isEmpty()) {
+			throw new IllegalArgumentException("Empty mix: " + spec);
+		}
+		return kinds.toArray(new Kind[0]);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 3) {
+			System.out.println("Usage: java LoadGenerator <server_host> <server_port> [options] <serial_port>...");
+			System.out.println("  --clients <n>        concurrent TCP connections (default 4)");
+			System.out.println("  --rate <msg/s>       total send rate (default 100)");
+			System.out.println("  --duration <s>       measured time (default 10)");
+			System.out.println("  --warmup <s>         unmeasured time first (default 2)");
+			System.out.println("  --size <bytes>       TEXT/BINARY value size, min 8 (default 16)");
+			System.out.println("  --mix <kind:w,...>   text, binary, csv with weights (default text)");
+			return;
+		}
+		String host = args[0];
+		int tcpPort = Integer.parseInt(args[1]);
+		int clients = 4, rate = 100, duration = 10, warmup = 2, size = 16;
+		Kind[] mix = { Kind.TEXT };
+		List<String> serialPorts = new ArrayList<>();
+		for (int i = 2; i < args.length; i++) {
+			switch (args[i]) {
+				case "--clients":  clients = Integer.parseInt(args[++i]); break;
+				case "--rate":     rate = Integer.parseInt(args[++i]); break;
+				case "--duration": duration = Integer.parseInt(args[++i]); break;
+				case "--warmup":   warmup = Integer.parseInt(args[++i]); break;
+				case "--size":     size = Integer.parseInt(args[++i]); break;
+				case "--mix":      mix = parseMix(args[++i]); break;
+				default:           serialPorts.add(args[i]);
+			}
+		}
+		if (serialPorts.isEmpty() || clients <= 0 || rate <= 0) {
+			System.err.println("[ERROR] Need at least one serial port, clients > 0 and rate > 0");
+			return;
+		}
+		new LoadGenerator(host, tcpPort, clients, rate, size, mix, serialPorts).run(warmup, duration);
+		System.exit(0);
+	}
+}
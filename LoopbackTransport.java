@@ -0,0 +1,384 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+* In-memory serial link for tests and benchmarks, no hardware needed.
+*
+* A named Link has two ends: the host end (what SerialCommunication opens as
+* "loop://<name>") and the device end (for a test or an emulator, via
+* LoopbackTransport.link(name).device(...)). Each direction simulates a UART:
+*  - bytes take (start + data + parity + stop bits) / baud seconds each on the wire
+*  - plus a fixed latency and a random jitter (order is always preserved)
+*  - at most `buffer` bytes in flight; writers block (then time out) beyond that
+* A link can be disconnected and reconnected, by hand or periodically: reads
+* and writes on a broken link return -1 and open() fails until it is back.
+*
+* Port name options (applied to the link when the port is opened and they
+* differ from the last ones applied, so reopening after a disconnect keeps the
+* periodic disconnect schedule running):
+*  loop://<name>?baud=<n>            simulated baud; default: the port's baud rate, 0 = unlimited
+*               &latency=<ms>&jitter=<ms>&buffer=<bytes>
+*               &echo                host writes come back to the host (no device end)
+*               &disconnectEvery=<ms>&downFor=<ms>   periodic disconnects (downFor defaults to 1000)
+*/
+public class LoopbackTransport {
+
+	public static final String SCHEME = "loop";
+
+	private static final int DEFAULT_BUFFER_BYTES = 4096;
+	private static final Map<String, Link> links = new ConcurrentHashMap<>();
+	private static final ScheduledExecutorService flapper = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "LoopbackDisconnects");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private LoopbackTransport() {
+	}
+
+	/**
+	* The link with this name, created on first use.
+	*/
+	public static Link link(String name) {
+		return links.computeIfAbsent(name, Link::new);
+	}
+
+	static SerialTransport forPort(String portName, SerialTransport.Settings settings) {
+		Link link = link(SerialTransports.nameOf(portName));
+		link.configure(SerialTransports.optionsOf(portName));
+		return link.host(settings);
+	}
+
+	public static final class Link {
+		private final String name;
+		private volatile int baudRate = -1; // -1: use the opening end's baud rate
+		private volatile int latencyMs;
+		private volatile int jitterMs;
+		private volatile int bufferBytes = DEFAULT_BUFFER_BYTES;
+		private volatile boolean echo;
+
+		// Current generation of wires; replaced on reconnect (guarded by this)
+		private boolean up = true;
+		private Wire toDevice = new Wire(DEFAULT_BUFFER_BYTES);
+		private Wire toHost = new Wire(DEFAULT_BUFFER_BYTES);
+		private ScheduledFuture<?> flapping;
+		private Map<String, String> portOptions = Map.of(); // last applied by configure()
+
+		private Link(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		* Simulated timing; baudRate -1 = the opening port's baud rate, 0 = unlimited.
+		*/
+		public Link simulate(int baudRate, int latencyMs, int jitterMs) {
+			this.baudRate = baudRate;
+			this.latencyMs = latencyMs;
+			this.jitterMs = jitterMs;
+			return this;
+		}
+
+		/**
+		* Max bytes in flight per direction; takes effect on the next reconnect.
+		*/
+		public Link buffer(int bytes) {
+			if (bytes <= 0) {
+				throw new IllegalArgumentException("Buffer size must be positive: " + bytes);
+			}
+			this.bufferBytes = bytes;
+			return this;
+		}
+
+		public Link echo(boolean echo) {
+			this.echo = echo;
+			return this;
+		}
+
+		/**
+		* Break the link: pending bytes are lost, every read/write returns -1.
+		*/
+		public synchronized void disconnect() {
+			if (!up) return;
+			up = false;
+			toDevice.breakWire();
+			toHost.breakWire();
+			System.out.printf("[INFO] Loopback link %s disconnected%n", name);
+		}
+
+		/**
+		* Bring the link back with empty wires; ends reopen to use it.
+		*/
+		public synchronized void reconnect() {
+			if (up) return;
+			toDevice = new Wire(bufferBytes);
+			toHost = new Wire(bufferBytes);
+			up = true;
+			System.out.printf("[INFO] Loopback link %s reconnected%n", name);
+		}
+
+		public synchronized boolean isUp() {
+			return up;
+		}
+
+		/**
+		* Disconnect every `everyMs` for `downMs` (everyMs <= 0 stops flapping).
+		*/
+		public synchronized void disconnectPeriodically(long everyMs, long downMs) {
+			if (flapping != null) {
+				flapping.cancel(false);
+				flapping = null;
+			}
+			if (everyMs > 0) {
+				flapping = flapper.scheduleAtFixedRate(() -> {
+					disconnect();
+					flapper.schedule(this::reconnect, downMs, TimeUnit.MILLISECONDS);
+				}, everyMs, everyMs, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		public SerialTransport host(SerialTransport.Settings settings) {
+			return new End(true, settings);
+		}
+
+		public SerialTransport device(SerialTransport.Settings settings) {
+			return new End(false, settings);
+		}
+
+		private synchronized void configure(Map<String, String> options) {
+			if (options.equals(portOptions)) {
+				return;
+			}
+			portOptions = options;
+			if (options.containsKey("baud")) baudRate = Integer.parseInt(options.get("baud"));
+			if (options.containsKey("latency")) latencyMs = Integer.parseInt(options.get("latency"));
+			if (options.containsKey("jitter")) jitterMs = Integer.parseInt(options.get("jitter"));
+			if (options.containsKey("buffer")) buffer(Integer.parseInt(options.get("buffer")));
+			if (options.containsKey("echo")) echo = !"false".equals(options.get("echo"));
+			if (options.containsKey("disconnectEvery")) {
+				long downMs = Long.parseLong(options.getOrDefault("downFor", "1000"));
+				disconnectPeriodically(Long.parseLong(options.get("disconnectEvery")), downMs);
+			}
+		}
+
+		private long nanosPerByte(SerialTransport.Settings settings) {
+			int baud = (baudRate >= 0) ? baudRate : settings.baudRate;
+			return (baud <= 0) ? 0 : TimeUnit.SECONDS.toNanos(1) * settings.bitsPerByteTenths() / (10L * baud);
+		}
+
+		/**
+		* One end of the link.
+		*/
+		private final class End implements SerialTransport {
+			private final boolean hostSide;
+			private final Settings settings;
+			private volatile Wire in;
+			private volatile Wire out;
+
+			End(boolean hostSide, Settings settings) {
+				this.hostSide = hostSide;
+				this.settings = settings;
+			}
+
+			public boolean open() {
+				synchronized (Link.this) {
+					if (!up) {
+						return false;
+					}
+					if (hostSide) {
+						in = toHost;
+						out = echo ? toHost : toDevice;
+					} else {
+						in = toDevice;
+						out = toHost;
+					}
+					return true;
+				}
+			}
+
+			public boolean isOpen() {
+				Wire wire = in;
+				return wire != null && !wire.isBroken();
+			}
+
+			public int read(byte[] buffer, int length, int offset) {
+				Wire wire = in;
+				return (wire == null) ? -1 : wire.read(buffer, length, offset, settings.readTimeoutMs);
+			}
+
+			public int available() {
+				Wire wire = in;
+				return (wire == null) ? 0 : wire.available();
+			}
+
+			public int write(byte[] data, int length, int offset) {
+				Wire wire = out;
+				if (wire == null) {
+					return -1;
+				}
+				return wire.write(data, length, offset, nanosPerByte(settings),
+				TimeUnit.MILLISECONDS.toNanos(latencyMs), TimeUnit.MILLISECONDS.toNanos(jitterMs),
+				settings.writeTimeoutMs);
+			}
+
+			public void close() {
+				in = null;
+				out = null;
+			}
+		}
+	}
+
+	/**
+	* One direction of a link: a bounded queue of chunks, each readable once its
+	* simulated delivery time has come.
+	*/
+	static final class Wire {
+		private static final class Chunk {
+			final byte[] data;
+			final long deliverAtNanos;
+			int position;
+
+			Chunk(byte[] data, long deliverAtNanos) {
+				this.data = data;
+				this.deliverAtNanos = deliverAtNanos;
+			}
+		}
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition changed = lock.newCondition();
+		private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+		private final int capacity;
+		private int bufferedBytes;
+		private long wireFreeAtNanos;  // when the simulated UART finishes the last byte
+		private long lastDeliverAtNanos;
+		private volatile boolean broken;
+
+		Wire(int capacity) {
+			this.capacity = capacity;
+		}
+
+		boolean isBroken() {
+			return broken;
+		}
+
+		void breakWire() {
+			lock.lock();
+			try {
+				broken = true;
+				chunks.clear();
+				bufferedBytes = 0;
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		int write(byte[] data, int length, int offset, long nanosPerByte, long latencyNanos, long jitterNanos,
+		int timeoutMs) {
+			lock.lock();
+			try {
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+				while (!broken && bufferedBytes >= capacity) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return 0;
+					}
+					changed.awaitNanos(remaining);
+				}
+				if (broken) {
+					return -1;
+				}
+				int n = Math.min(length, capacity - bufferedBytes);
+				long now = System.nanoTime();
+				wireFreeAtNanos = Math.max(now, wireFreeAtNanos) + n * nanosPerByte;
+				long jitter = (jitterNanos > 0) ? ThreadLocalRandom.current().nextLong(jitterNanos + 1) : 0;
+				long deliverAt = Math.max(wireFreeAtNanos + latencyNanos + jitter, lastDeliverAtNanos);
+				lastDeliverAtNanos = deliverAt;
+				chunks.add(new Chunk(Arrays.copyOfRange(data, offset, offset + n), deliverAt));
+				bufferedBytes += n;
+				changed.signalAll();
+				return n;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return 0;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		int read(byte[] buffer, int length, int offset, int timeoutMs) {
+			lock.lock();
+			try {
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+				while (true) {
+					if (broken) {
+						return -1;
+					}
+					long now = System.nanoTime();
+					Chunk head = chunks.peek();
+					if (head != null && head.deliverAtNanos <= now) {
+						return drain(buffer, length, offset, now);
+					}
+					long remaining = deadline - now;
+					if (remaining <= 0) {
+						return 0;
+					}
+					changed.awaitNanos(head == null ? remaining : Math.min(remaining, head.deliverAtNanos - now));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return 0;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		// Bytes whose delivery time has come
+		int available() {
+			lock.lock();
+			try {
+				long now = System.nanoTime();
+				int count = 0;
+				for (Chunk chunk : chunks) {
+					if (chunk.deliverAtNanos > now) {
+						break; // delivery times never decrease
+					}
+					count += chunk.data.length - chunk.position;
+				}
+				return count;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		// Copy every delivered byte that fits (lock held)
+		private int drain(byte[] buffer, int length, int offset, long now) {
+			int copied = 0;
+			Chunk head;
+			while (copied < length && (head = chunks.peek()) != null && head.deliverAtNanos <= now) {
+				int n = Math.min(length - copied, head.data.length - head.position);
+				System.arraycopy(head.data, head.position, buffer, offset + copied, n);
+				head.position += n;
+				copied += n;
+				if (head.position == head.data.length) {
+					chunks.poll();
+				}
+			}
+			bufferedBytes -= copied;
+			changed.signalAll();
+			return copied;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+* Checks for LoopbackTransport links: data both ways, disconnect and reconnect,
+* by hand, periodically, and through SerialCommunication's reconnect loop. No
+* test framework: run with `java -cp .:jSerialComm-2.11.0.jar LoopbackTransportTest`,
+* a failed check throws and the exit status is non-zero.
+*/
+public class LoopbackTransportTest {
+
+	private static final SerialTransport.Settings SETTINGS = new SerialTransport.Settings(0, 8, 1, 0, 200, 200);
+
+	public static void main(String[] args) throws Exception {
+		bytesFlowBothWays();
+		disconnectBreaksBothEnds();
+		reconnectNeedsReopen();
+		periodicDisconnects();
+		serialPortReconnects();
+		System.out.println("All LoopbackTransport checks passed");
+	}
+
+	static void bytesFlowBothWays() {
+		LoopbackTransport.Link link = LoopbackTransport.link("test-flow");
+		SerialTransport host = link.host(SETTINGS);
+		SerialTransport device = link.device(SETTINGS);
+		check(host.open() && device.open(), "both ends open");
+		check(transfer(host, device, "to device"), "host -> device");
+		check(transfer(device, host, "to host"), "device -> host");
+		check(device.read(new byte[8], 8, 0) == 0, "read times out with nothing sent");
+		System.out.println("ok bytesFlowBothWays");
+	}
+
+	// Pending bytes are lost; reads, writes and open() fail on both ends
+	static void disconnectBreaksBothEnds() {
+		LoopbackTransport.Link link = LoopbackTransport.link("test-break");
+		SerialTransport host = link.host(SETTINGS);
+		SerialTransport device = link.device(SETTINGS);
+		check(host.open() && device.open(), "both ends open");
+		write(host, "never read");
+
+		link.disconnect();
+		check(!link.isUp() && !host.isOpen() && !device.isOpen(), "link and ends down");
+		check(device.available() == 0, "pending bytes dropped");
+		check(device.read(new byte[16], 16, 0) == -1, "device read fails");
+		check(host.read(new byte[16], 16, 0) == -1, "host read fails");
+		check(host.write(new byte[1], 1, 0) == -1, "host write fails");
+		check(!link.host(SETTINGS).open(), "open() fails while down");
+		System.out.println("ok disconnectBreaksBothEnds");
+	}
+
+	// After reconnect() the link has fresh, empty wires; an end only uses them once reopened
+	static void reconnectNeedsReopen() {
+		LoopbackTransport.Link link = LoopbackTransport.link("test-reconnect");
+		SerialTransport host = link.host(SETTINGS);
+		SerialTransport device = link.device(SETTINGS);
+		check(host.open() && device.open(), "both ends open");
+		write(host, "lost");
+		link.disconnect();
+		link.reconnect();
+
+		check(link.isUp(), "link up");
+		check(host.write(new byte[1], 1, 0) == -1, "stale end still broken");
+		check(host.open() && device.open(), "ends reopen");
+		check(device.available() == 0, "nothing from before the disconnect");
+		check(transfer(host, device, "after reconnect"), "host -> device after reconnect");
+		check(transfer(device, host, "reply"), "device -> host after reconnect");
+		System.out.println("ok reconnectNeedsReopen");
+	}
+
+	// disconnectEvery/downFor in the port name flap the link on a schedule
+	static void periodicDisconnects() throws Exception {
+		SerialTransport host = SerialTransports.create("loop://test-flap?disconnectEvery=200&downFor=100", SETTINGS);
+		LoopbackTransport.Link link = LoopbackTransport.link("test-flap");
+		check(host.open(), "host opens");
+		check(waitFor(() -> !link.isUp(), 1000), "link goes down");
+		check(waitFor(link::isUp, 1000), "link comes back");
+		check(waitFor(() -> !link.isUp(), 1000), "and goes down again");
+		link.disconnectPeriodically(0, 0);
+		check(waitFor(link::isUp, 1000), "back up after flapping stops");
+		Thread.sleep(300);
+		check(link.isUp(), "stays up");
+		System.out.println("ok periodicDisconnects");
+	}
+
+	// A SerialCommunication port on an echo link reopens by itself after the link
+	// comes back, and messages flow again
+	static void serialPortReconnects() throws Exception {
+		String port = "loop://test-serial?echo&baud=0";
+		SerialCommunication serialComm = new SerialCommunication();
+		BlockingQueue<String> received = new LinkedBlockingQueue<>();
+		serialComm.subscribe(message -> received.add(new String(message.getValue(), StandardCharsets.UTF_8)));
+		try {
+			serialComm.addSerialPort(port, 115200, 8, 1, 0);
+			serialComm.publishText("K", "before", port);
+			check("before".equals(received.poll(2, TimeUnit.SECONDS)), "echo before the disconnect");
+
+			LoopbackTransport.Link link = LoopbackTransport.link("test-serial");
+			link.disconnect();
+			check(waitFor(() -> !serialComm.isConnected(port), 3000), "port sees the disconnect");
+			link.reconnect();
+			check(waitFor(() -> serialComm.isConnected(port), 5000), "port reconnects");
+			serialComm.publishText("K", "after", port);
+			check("after".equals(received.poll(2, TimeUnit.SECONDS)), "echo after the reconnect");
+		} finally {
+			serialComm.close();
+		}
+		System.out.println("ok serialPortReconnects");
+	}
+
+	// Write text on one end and read it whole on the other
+	private static boolean transfer(SerialTransport from, SerialTransport to, String text) {
+		write(from, text);
+		byte[] buffer = new byte[64];
+		int length = 0;
+		long deadline = System.currentTimeMillis() + 2000;
+		while (length < text.length() && System.currentTimeMillis() < deadline) {
+			int n = to.read(buffer, buffer.length - length, length);
+			if (n < 0) {
+				return false;
+			}
+			length += n;
+		}
+		return text.equals(new String(buffer, 0, length, StandardCharsets.US_ASCII));
+	}
+
+	private static void write(SerialTransport end, String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+		check(end.write(bytes, bytes.length, 0) == bytes.length, "wrote '" + text + "'");
+	}
+
+	private static boolean waitFor(BooleanSupplier condition, long timeoutMs)
+	throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMs;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Thread.sleep(5);
+		}
+		return true;
+	}
+
+	private static void check(boolean condition, String what) {
+		if (!condition) {
+			throw new AssertionError("Check failed: " + what);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+* Lock-free metrics for the hot paths, read through the server's STATS command
+* or scraped in the Prometheus text format.
+*
+* A series is created once (get-or-create by name and labels) and kept by the
+* code that updates it, so recording is a LongAdder add or a histogram bucket
+* increment: no locks, no lookups. Gauges are functions read at export time.
+* Labels are name/value pairs:
+*   Metrics.Counter frames = Metrics.DEFAULT.counter("serial_frames_in_total", "...", "port", "COM3");
+* Histograms record nanoseconds and are exported as summaries in seconds.
+*/
+public final class Metrics {
+
+	public static final Metrics DEFAULT = new Metrics();
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	public static final class Counter {
+		private final LongAdder value = new LongAdder();
+
+		public void inc()          { value.increment(); }
+		public void add(long n)    { value.add(n); }
+		public long get()          { return value.sum(); }
+	}
+
+	private enum Type { COUNTER, GAUGE, SUMMARY }
+
+	/**
+	* One metric name: its help text, type and series by rendered labels.
+	*/
+	private static final class Family {
+		final String name;
+		final String help;
+		final Type type;
+		final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+		Family(String name, String help, Type type) {
+			this.name = name;
+			this.help = help;
+			this.type = type;
+		}
+	}
+
+	private static final class Series {
+		final String[] labels; // name, value, name, value, ...
+		final String rendered; // name="value",name="value"
+		final Object metric;   // Counter, DoubleSupplier or LatencyHistogram
+
+		Series(String[] labels, String rendered, Object metric) {
+			this.labels = labels;
+			this.rendered = rendered;
+			this.metric = metric;
+		}
+
+		boolean hasLabel(String name, String value) {
+			for (int i = 0; i + 1 < labels.length; i += 2) {
+				if (labels[i].equals(name) && labels[i + 1].equals(value)) return true;
+			}
+			return false;
+		}
+	}
+
+	private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+	public Counter counter(String name, String help, String... labels) {
+		return (Counter) series(name, help, Type.COUNTER, labels, new Counter(), false);
+	}
+
+	LatencyHistogram histogram(String name, String help, String... labels) {
+		return (LatencyHistogram) series(name, help, Type.SUMMARY, labels, new LatencyHistogram(), false);
+	}
+
+	/**
+	* Register (or replace) a gauge read on every export.
+	*/
+	public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+		series(name, help, Type.GAUGE, labels, value, true);
+	}
+
+	/**
+	* Drop every series carrying label name=value (a closed port, a gone client).
+	*/
+	public void remove(String labelName, String labelValue) {
+		for (Family family : families.values()) {
+			family.series.values().removeIf(s -> s.hasLabel(labelName, labelValue));
+		}
+	}
+
+	private Object series(String name, String help, Type type, String[] labels, Object metric, boolean replace) {
+		if (labels.length % 2 != 0) {
+			throw new IllegalArgumentException("Labels must be name/value pairs: " + name);
+		}
+		Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+		if (family.type != type) {
+			throw new IllegalArgumentException("Metric " + name + " is a " + family.type + ", not a " + type);
+		}
+		String rendered = renderLabels(labels);
+		Series created = new Series(labels.clone(), rendered, metric);
+		if (replace) {
+			family.series.put(rendered, created);
+			return metric;
+		}
+		return family.series.computeIfAbsent(rendered, r -> created).metric;
+	}
+
+	/**
+	* Prometheus text exposition format (version 0.0.4).
+	*/
+	public void writePrometheus(StringBuilder out) {
+		write(out, true);
+	}
+
+	/**
+	* Sample lines only, without the # HELP / # TYPE comments.
+	*/
+	public void writeSamples(StringBuilder out) {
+		write(out, false);
+	}
+
+	private void write(StringBuilder out, boolean comments) {
+		for (Family family : families.values()) {
+			if (family.series.isEmpty()) continue;
+			if (comments) {
+				out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+				out.append("# TYPE ").append(family.name).append(' ').append(family.type.name().toLowerCase()).append('\n');
+			}
+			for (Series s : family.series.values()) {
+				switch (family.type) {
+					case COUNTER:
+						sample(out, family.name, s.rendered, null, ((Counter) s.metric).get());
+						break;
+					case GAUGE:
+						sample(out, family.name, s.rendered, null, ((DoubleSupplier) s.metric).getAsDouble());
+						break;
+					case SUMMARY:
+						LatencyHistogram h = (LatencyHistogram) s.metric;
+						for (double q : QUANTILES) {
+							sample(out, family.name, s.rendered, "quantile=\"" + q + "\"", h.percentile(q * 100) / 1e9);
+						}
+						sample(out, family.name + "_sum", s.rendered, null, h.sum() / 1e9);
+						sample(out, family.name + "_count", s.rendered, null, h.count());
+						break;
+				}
+			}
+		}
+	}
+
+	private static void sample(StringBuilder out, String name, String labels, String extra, double value) {
+		out.append(name);
+		if (!labels.isEmpty() || extra != null) {
+			out.append('{').append(labels);
+			if (extra != null) {
+				if (!labels.isEmpty()) out.append(',');
+				out.append(extra);
+			}
+			out.append('}');
+		}
+		out.append(' ');
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			out.append((long) value);
+		} else {
+			out.append(value);
+		}
+		out.append('\n');
+	}
+
+	private static String renderLabels(String[] labels) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < labels.length; i += 2) {
+			if (i > 0) sb.append(',');
+			sb.append(labels[i]).append("=\"");
+			String value = labels[i + 1];
+			for (int c = 0; c < value.length(); c++) {
+				char ch = value.charAt(c);
+				if (ch == '\\' || ch == '"') sb.append('\\').append(ch);
+				else if (ch == '\n') sb.append("\\n");
+				else sb.append(ch);
+			}
+			sb.append('"');
+		}
+		return sb.toString();
+	}
+
+	/**
+	* Serve GET /metrics on 127.0.0.1:port (local scraping only).
+	*/
+	public HttpServer serveHttp(int port) throws IOException {
+		HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		http.createContext("/metrics", exchange -> {
+			try {
+				if (!exchange.getRequestMethod().equals("GET")) {
+					exchange.sendResponseHeaders(405, -1);
+					return;
+				}
+				StringBuilder body = new StringBuilder(4096);
+				writePrometheus(body);
+				byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+				exchange.sendResponseHeaders(200, bytes.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+			} finally {
+				exchange.close();
+			}
+		});
+		http.start();
+		System.out.printf("[INFO] Metrics at http://127.0.0.1:%d/metrics%n", http.getAddress().getPort());
+		return http;
+	}
+}
@@ -0,0 +1,120 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+* Table-driven Morse codebook.
+*
+* Every supported character is stored as a precomputed element pattern in a
+* dense char-indexed array, so encoding a character is a single array lookup.
+*
+* Pattern layout (int):
+*  --------------------------------------------
+*  | unused (20 bits) | count (4) | elements (8) |
+*  --------------------------------------------
+*  elements: bit i is element i of the character (0 = dot, 1 = dash)
+*  count:    number of elements (1..8), 0 means "no pattern"
+*/
+public class MorseCodebook {
+
+	public static final int NO_PATTERN = 0;
+	private static final int TABLE_SIZE = 128; // ASCII
+	private static final int MAX_ELEMENTS = 8;
+
+	// ITU-R M.1677-1 alphabet, digits and punctuation
+	private static final String[][] ITU_CODES = {
+		{"A", ".-"},     {"B", "-..."},   {"C", "-.-."},   {"D", "-.."},
+		{"E", "."},      {"F", "..-."},   {"G", "--."},    {"H", "...."},
+		{"I", ".."},     {"J", ".---"},   {"K", "-.-"},    {"L", ".-.."},
+		{"M", "--"},     {"N", "-."},     {"O", "---"},    {"P", ".--."},
+		{"Q", "--.-"},   {"R", ".-."},    {"S", "..."},    {"T", "-"},
+		{"U", "..-"},    {"V", "...-"},   {"W", ".--"},    {"X", "-..-"},
+		{"Y", "-.--"},   {"Z", "--.."},
+		{"0", "-----"},  {"1", ".----"},  {"2", "..---"},  {"3", "...--"},
+		{"4", "....-"},  {"5", "....."},  {"6", "-...."},  {"7", "--..."},
+		{"8", "---.."},  {"9", "----."},
+		{".", ".-.-.-"}, {",", "--..--"}, {"?", "..--.."}, {"'", ".----."},
+		{"!", "-.-.--"}, {"/", "-..-."},  {"(", "-.--."},  {")", "-.--.-"},
+		{"&", ".-..."},  {":", "---..."}, {";", "-.-.-."}, {"=", "-...-"},
+		{"+", ".-.-."},  {"-", "-....-"}, {"_", "..--.-"}, {"\"", ".-..-."},
+		{"@", ".--.-."}
+	};
+
+	/** Default codebook shared by the client. */
+	public static final MorseCodebook ITU = new MorseCodebook(ituCodes());
+
+	private final int[] patterns = new int[TABLE_SIZE];
+
+	/**
+	* Build a codebook from character -> ".-" strings.
+	* Letters are registered case-insensitively.
+	*/
+	public MorseCodebook(Map<Character, String> codes) {
+		for (Map.Entry<Character, String> entry : codes.entrySet()) {
+			char c = entry.getKey();
+			if (c >= TABLE_SIZE) {
+				throw new IllegalArgumentException("Character out of range: " + c);
+			}
+			int pattern = parse(entry.getValue());
+			patterns[c] = pattern;
+			patterns[Character.toLowerCase(c)] = pattern;
+			patterns[Character.toUpperCase(c)] = pattern;
+		}
+	}
+
+	/**
+	* Pattern for a character, or NO_PATTERN if it is not in the codebook.
+	*/
+	public int lookup(char c) {
+		return (c < TABLE_SIZE) ? patterns[c] : NO_PATTERN;
+	}
+
+	public static int elementCount(int pattern) {
+		return (pattern >>> MAX_ELEMENTS) & 0xF;
+	}
+
+	public static boolean isDash(int pattern, int index) {
+		return ((pattern >>> index) & 1) != 0;
+	}
+
+	/**
+	* Render a pattern back to its ".-" form (for display/debugging).
+	*/
+	public static String toDotsAndDashes(int pattern) {
+		int count = elementCount(pattern);
+		StringBuilder sb = new StringBuilder(count);
+		for (int i = 0; i < count; i++) {
+			sb.append(isDash(pattern, i) ? '-' : '.');
+		}
+		return sb.toString();
+	}
+
+	/**
+	* Pack a ".-" string into a pattern
+	*/
+	public static int parse(String code) {
+		if (code == null || code.isEmpty() || code.length() > MAX_ELEMENTS) {
+			throw new IllegalArgumentException("Invalid Morse code: " + code);
+		}
+		int elements = 0;
+		for (int i = 0; i < code.length(); i++) {
+			char e = code.charAt(i);
+			if (e == '-') {
+				elements |= 1 << i;
+			} else if (e != '.') {
+				throw new IllegalArgumentException("Invalid Morse element '" + e + "' in " + code);
+			}
+		}
+		return (code.length() << MAX_ELEMENTS) | elements;
+	}
+
+	/**
+	* Copy of the ITU table, e.g. as a starting point for a custom codebook.
+	*/
+	public static Map<Character, String> ituCodes() {
+		Map<Character, String> codes = new LinkedHashMap<>();
+		for (String[] entry : ITU_CODES) {
+			codes.put(entry[0].charAt(0), entry[1]);
+		}
+		return codes;
+	}
+}
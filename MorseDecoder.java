@@ -0,0 +1,162 @@
+/**
+* Streaming Morse decoder for key timings reported by the device.
+*
+* Durations are classified against an adaptive unit estimate and walked down a
+* static dot/dash binary trie stored as a heap-indexed char array
+* (root = 1, dot = 2i, dash = 2i + 1), so decoding does not allocate per symbol.
+* Characters are emitted incrementally to a CharSink; a word gap emits ' '.
+*
+* MORSE_TIMINGS frame value layout:
+*  --------------------------------------
+*  | duration 0 (2 bytes, big-endian)   |
+*  | ...                                |
+*  --------------------------------------
+*  duration: signed milliseconds, > 0 = key down (on), < 0 = key up (off)
+*/
+public class MorseDecoder {
+
+	public static final String KEY = "MORSE_TIMINGS";
+	public static final char UNKNOWN = '*';
+
+	public interface CharSink {
+		void onChar(char c);
+	}
+
+	private static final int MAX_DEPTH = 8;
+	private static final int ROOT = 1;
+	private static final char[] ITU_TRIE = buildTrie(MorseCodebook.ITU);
+
+	private final char[] trie;
+	private final CharSink sink;
+	private final float initialUnitMs;
+
+	private float unitMs;
+	private int node = ROOT;
+	private boolean overflow;
+
+	public MorseDecoder(int initialUnitMs, CharSink sink) {
+		this(ITU_TRIE, initialUnitMs, sink);
+	}
+
+	public MorseDecoder(MorseCodebook codebook, int initialUnitMs, CharSink sink) {
+		this(buildTrie(codebook), initialUnitMs, sink);
+	}
+
+	private MorseDecoder(char[] trie, int initialUnitMs, CharSink sink) {
+		if (initialUnitMs <= 0) {
+			throw new IllegalArgumentException("Unit length must be positive: " + initialUnitMs);
+		}
+		this.trie = trie;
+		this.sink = sink;
+		this.initialUnitMs = initialUnitMs;
+		this.unitMs = initialUnitMs;
+	}
+
+	/**
+	* Current unit estimate in milliseconds
+	*/
+	public float getUnitMs() {
+		return unitMs;
+	}
+
+	/**
+	* Consume one key-down (on) or key-up (off) duration.
+	*/
+	public void onDuration(boolean on, int millis) {
+		if (millis <= 0) {
+			return;
+		}
+
+		if (on) {
+			boolean dash = millis >= 2 * unitMs;
+			// Track the operator's speed: a dot is 1 unit, a dash 3
+			adapt(dash ? millis / 3f : millis);
+			if (node >= trie.length / 2) {
+				overflow = true;
+			} else {
+				node = 2 * node + (dash ? 1 : 0);
+			}
+		} else if (millis < 2 * unitMs) {
+			adapt(millis); // gap between elements
+		} else if (millis < 5 * unitMs) {
+			endLetter();
+		} else {
+			endLetter();
+			sink.onChar(' ');
+		}
+	}
+
+	/**
+	* Consume MORSE_TIMINGS frame data given as hex characters in text[start, end),
+	* e.g. straight out of a "RECEIVED BINARY ..." line. Throws
+	* IllegalArgumentException, before consuming anything, if the length is not a
+	* whole number of 16-bit durations (4 hex characters each).
+	*/
+	public void feedHex(CharSequence text, int start, int end) {
+		if ((end - start) % 4 != 0) {
+			throw new IllegalArgumentException("MORSE_TIMINGS length " + (end - start)
+			+ " is not a multiple of 4 hex characters");
+		}
+		for (int i = start; i + 4 <= end; i += 4) {
+			int value = 0;
+			for (int j = i; j < i + 4; j++) {
+				int digit = HexCodec.digit(text.charAt(j));
+				if (digit < 0) {
+					throw new IllegalArgumentException("Invalid hex character at " + j);
+				}
+				value = (value << 4) | digit;
+			}
+			short duration = (short) value;
+			onDuration(duration > 0, Math.abs(duration));
+		}
+	}
+
+	/**
+	* Emit any pending letter (e.g. when the key has been idle).
+	*/
+	public void flush() {
+		endLetter();
+	}
+
+	/**
+	* Drop any pending letter and go back to the initial unit estimate.
+	*/
+	public void reset() {
+		node = ROOT;
+		overflow = false;
+		unitMs = initialUnitMs;
+	}
+
+	private void endLetter() {
+		if (node == ROOT && !overflow) {
+			return;
+		}
+		char c = overflow ? 0 : trie[node];
+		sink.onChar(c != 0 ? c : UNKNOWN);
+		node = ROOT;
+		overflow = false;
+	}
+
+	private void adapt(float sampleUnitMs) {
+		unitMs += (sampleUnitMs - unitMs) * 0.25f;
+	}
+
+	/**
+	* Lay the codebook out as a heap-indexed binary trie (uppercase letters).
+	*/
+	private static char[] buildTrie(MorseCodebook codebook) {
+		char[] trie = new char[1 << (MAX_DEPTH + 1)];
+		for (char c = 0; c < 128; c++) {
+			int pattern = codebook.lookup(c);
+			if (pattern == MorseCodebook.NO_PATTERN || Character.isLowerCase(c)) {
+				continue;
+			}
+			int index = ROOT;
+			for (int e = 0; e < MorseCodebook.elementCount(pattern); e++) {
+				index = 2 * index + (MorseCodebook.isDash(pattern, e) ? 1 : 0);
+			}
+			trie[index] = c;
+		}
+		return trie;
+	}
+}
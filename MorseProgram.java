@@ -0,0 +1,170 @@
+/**
+* Run-length encoded on/off "timing program" for a whole word or sentence,
+* sent to the device as a single MORSE_PROGRAM BINARY frame.
+*
+* Frame value layout:
+*  --------------------------------
+*  | unitMs (2 bytes, big-endian) |
+*  | run 0 (1 byte)               |
+*  | ...                          |
+*  | run N-1 (1 byte)             |
+*  --------------------------------
+*  run: bit 7 = LED level (1 = on, 0 = off), bits 0..6 = duration in units
+*
+* Standard Morse timing is used: dot = 1 unit on, dash = 3 units on,
+* 1 unit off between elements, 3 between letters and 7 between words.
+*
+* The device plays consecutive frames back to back, so a gap that straddles a
+* frame boundary is split: nextFrame() remembers the off run the sent frame
+* ended on, and a gap opening the next frame only adds what is missing.
+*/
+public class MorseProgram {
+
+	public static final String KEY = "MORSE_PROGRAM";
+
+	public static final int HEADER_SIZE = 2;
+	public static final int MAX_VALUE_SIZE = 2048; // namo::SerialProtocol::MAX_VALUE_SIZE
+	public static final int MAX_RUNS = MAX_VALUE_SIZE - HEADER_SIZE;
+
+	static final int LEVEL_ON = 0x80;
+	static final int UNITS_MASK = 0x7F;
+
+	static final int DOT_UNITS = 1;
+	static final int DASH_UNITS = 3;
+	static final int ELEMENT_GAP_UNITS = 1;
+	static final int LETTER_GAP_UNITS = 3;
+	static final int WORD_GAP_UNITS = 7;
+
+	// Worst case runs for one character: 8 elements, each followed by a gap
+	private static final int MAX_RUNS_PER_CHAR = 16;
+
+	private final MorseCodebook codebook;
+	private final int unitMs;
+	private final byte[] value = new byte[MAX_VALUE_SIZE];
+	private int length = HEADER_SIZE;
+	private int carriedGap; // off units that ended the previous frame of this transmission
+
+	public MorseProgram(MorseCodebook codebook, int unitMs) {
+		if (unitMs <= 0 || unitMs > 0xFFFF) {
+			throw new IllegalArgumentException("Unit length out of range: " + unitMs);
+		}
+		this.codebook = codebook;
+		this.unitMs = unitMs;
+		value[0] = (byte) (unitMs >>> 8);
+		value[1] = (byte) unitMs;
+	}
+
+	public int getUnitMs() { return unitMs; }
+
+	/**
+	* Append one character. Spaces become a word gap.
+	* Returns false if the character is not in the codebook (nothing appended).
+	*/
+	public boolean append(char c) {
+		if (c == ' ') {
+			gap(WORD_GAP_UNITS);
+			return true;
+		}
+
+		int pattern = codebook.lookup(c);
+		if (pattern == MorseCodebook.NO_PATTERN) {
+			return false;
+		}
+
+		int elements = MorseCodebook.elementCount(pattern);
+		for (int e = 0; e < elements; e++) {
+			value[length++] = (byte) (LEVEL_ON | (MorseCodebook.isDash(pattern, e) ? DASH_UNITS : DOT_UNITS));
+			gap(e == elements - 1 ? LETTER_GAP_UNITS : ELEMENT_GAP_UNITS);
+		}
+		return true;
+	}
+
+	/**
+	* Append runs that are already encoded (e.g. a cached word), runs[offset, offset + count).
+	* They must fit: count <= remaining().
+	*/
+	public void appendRuns(byte[] runs, int offset, int count) {
+		if (count > remaining()) {
+			throw new IllegalArgumentException("Runs do not fit in the frame: " + count);
+		}
+		System.arraycopy(runs, offset, value, length, count);
+		length += count;
+	}
+
+	/**
+	* Bytes still free in this frame
+	*/
+	public int remaining() {
+		return MAX_VALUE_SIZE - length;
+	}
+
+	/**
+	* True if another character may not fit in this frame.
+	*/
+	public boolean isFull() {
+		return length - HEADER_SIZE > MAX_RUNS - MAX_RUNS_PER_CHAR;
+	}
+
+	public boolean isEmpty() {
+		return length == HEADER_SIZE;
+	}
+
+	/**
+	* Size of the frame value (header + runs)
+	*/
+	public int length() {
+		return length;
+	}
+
+	/**
+	* Backing array; only the first length() bytes are valid.
+	*/
+	public byte[] array() {
+		return value;
+	}
+
+	/**
+	* Copy of the frame value, ready to publish.
+	*/
+	public byte[] toByteArray() {
+		byte[] copy = new byte[length];
+		System.arraycopy(value, 0, copy, 0, length);
+		return copy;
+	}
+
+	/**
+	* Start over for a new transmission.
+	*/
+	public void reset() {
+		length = HEADER_SIZE;
+		carriedGap = 0;
+	}
+
+	/**
+	* Start the next frame of the same transmission, after this one was sent.
+	*/
+	public void nextFrame() {
+		int last = value[length - 1];
+		carriedGap = (length > HEADER_SIZE && (last & LEVEL_ON) == 0) ? last & UNITS_MASK : 0;
+		length = HEADER_SIZE;
+	}
+
+	/**
+	* Extend a trailing off run to at least `units`, or start a new one. At the
+	* start of a frame, the gap carried over from the previous one counts.
+	*/
+	private void gap(int units) {
+		if (length == HEADER_SIZE) {
+			if (units > carriedGap) {
+				value[length++] = (byte) (units - carriedGap);
+			}
+		} else if ((value[length - 1] & LEVEL_ON) == 0) {
+			int played = (length == HEADER_SIZE + 1) ? carriedGap : 0;
+			if ((value[length - 1] & UNITS_MASK) + played < units) {
+				value[length - 1] = (byte) (units - played);
+			}
+		} else {
+			value[length++] = (byte) units;
+		}
+	}
+}
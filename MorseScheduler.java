@@ -0,0 +1,145 @@
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+* Deadline-based Morse keying on a single timer thread.
+*
+* Every element start is computed as an absolute System.nanoTime() deadline
+* from the start of the text (start + elapsedUnits * unitNanos), so GC pauses,
+* queue polling or slow writes delay one element but never accumulate into drift.
+* Texts submitted back-to-back are chained onto the previous text's end deadline.
+*
+* Unit length follows the PARIS standard: unit = 1200 ms / WPM.
+*/
+public class MorseScheduler {
+
+	// Called on the timer thread at each element's start deadline
+	public interface ElementListener {
+		void onElement(boolean dash);
+	}
+
+	private static final long PARIS_UNIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1200);
+
+	private final MorseCodebook codebook;
+	private final long unitNanos;
+	private final ElementListener listener;
+	private final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+	private final AtomicBoolean running = new AtomicBoolean(true);
+	private final Thread timerThread;
+
+	// End of the last scheduled text (timer thread only)
+	private long nextStartNanos;
+
+	public MorseScheduler(MorseCodebook codebook, int wpm, ElementListener listener) {
+		if (wpm <= 0) {
+			throw new IllegalArgumentException("WPM must be positive: " + wpm);
+		}
+		this.codebook = codebook;
+		this.unitNanos = PARIS_UNIT_NANOS / wpm;
+		this.listener = listener;
+		this.nextStartNanos = System.nanoTime();
+
+		timerThread = new Thread(this::run, "MorseScheduler");
+		timerThread.setDaemon(true);
+		timerThread.start();
+	}
+
+	/**
+	* Unit length in milliseconds for a given speed, at least 1 ms
+	*/
+	public static int unitMillis(int wpm) {
+		if (wpm <= 0) {
+			throw new IllegalArgumentException("WPM must be positive: " + wpm);
+		}
+		return (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(PARIS_UNIT_NANOS / wpm));
+	}
+
+	/**
+	* Queue text for keying. Returns the number of characters that are not in the
+	* codebook and will be skipped.
+	*/
+	public int submit(String text) {
+		int skipped = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c != ' ' && codebook.lookup(c) == MorseCodebook.NO_PATTERN) {
+				skipped++;
+			}
+		}
+		pending.add(text);
+		return skipped;
+	}
+
+	public void close() {
+		if (running.compareAndSet(true, false)) {
+			timerThread.interrupt();
+		}
+	}
+
+	private void run() {
+		while (running.get()) {
+			String text;
+			try {
+				text = pending.take();
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			// Chain onto the previous text unless we have been idle since it ended
+			long start = Math.max(nextStartNanos, System.nanoTime());
+			long units = 0;
+			boolean letterSent = false;
+
+			for (int i = 0; i < text.length() && running.get(); i++) {
+				char c = text.charAt(i);
+				if (c == ' ') {
+					// Letter gap (3) already counted; stretch it to a word gap (7)
+					if (letterSent) {
+						units += MorseProgram.WORD_GAP_UNITS - MorseProgram.LETTER_GAP_UNITS;
+						letterSent = false;
+					}
+					continue;
+				}
+
+				int pattern = codebook.lookup(c);
+				if (pattern == MorseCodebook.NO_PATTERN) {
+					continue;
+				}
+
+				int elements = MorseCodebook.elementCount(pattern);
+				for (int e = 0; e < elements; e++) {
+					if (!parkUntil(start + units * unitNanos)) {
+						return;
+					}
+					boolean dash = MorseCodebook.isDash(pattern, e);
+					try {
+						listener.onElement(dash);
+					} catch (Exception ex) {
+						System.err.println("Error in Morse element listener: " + ex.getMessage());
+					}
+					units += (dash ? MorseProgram.DASH_UNITS : MorseProgram.DOT_UNITS)
+					+ (e == elements - 1 ? MorseProgram.LETTER_GAP_UNITS : MorseProgram.ELEMENT_GAP_UNITS);
+				}
+				letterSent = true;
+			}
+			nextStartNanos = start + units * unitNanos;
+		}
+	}
+
+	/**
+	* Park until the absolute deadline. Returns false if the scheduler was closed.
+	*/
+	private boolean parkUntil(long deadlineNanos) {
+		long remaining;
+		while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(this, remaining);
+			if (!running.get()) {
+				return false;
+			}
+		}
+		return running.get();
+	}
+}
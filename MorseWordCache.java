@@ -0,0 +1,105 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* Bounded LRU cache of pre-encoded words for MORSE_PROGRAM frames.
+*
+* Each entry holds the word's MorseProgram runs, ending with a letter gap run
+* (0x03), so a repeated word costs one map lookup and an array copy into the
+* frame instead of a codebook walk.
+*/
+public class MorseWordCache {
+
+	// Longer words are rare and would pin large entries; encode them directly
+	public static final int MAX_WORD_LENGTH = 32;
+
+	public static class Entry {
+		private final byte[] runs;
+		private final int skipped;
+
+		Entry(byte[] runs, int skipped) {
+			this.runs = runs;
+			this.skipped = skipped;
+		}
+
+		/**
+		* Shared by every lookup of the word; do not modify.
+		*/
+		public byte[] getRuns()  { return runs; }
+		public int getSkipped()  { return skipped; }
+	}
+
+	private final int maxEntries;
+	private final Map<String, Entry> entries;
+	private final MorseProgram scratch;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public MorseWordCache(MorseCodebook codebook, int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		this.scratch = new MorseProgram(codebook, 1);
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > MorseWordCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	* Encoded runs for a word (no spaces), encoding and caching it on a miss.
+	*/
+	public synchronized Entry get(String word) {
+		Entry entry = entries.get(word);
+		if (entry != null) {
+			hits.incrementAndGet();
+			return entry;
+		}
+		misses.incrementAndGet();
+		entry = encode(word);
+		if (word.length() <= MAX_WORD_LENGTH) {
+			entries.put(word, entry);
+		}
+		return entry;
+	}
+
+	public long getHits()   { return hits.get(); }
+	public long getMisses() { return misses.get(); }
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	private Entry encode(String word) {
+		byte[] runs = new byte[0];
+		int skipped = 0;
+		scratch.reset();
+		for (int i = 0; i < word.length(); i++) {
+			if (!scratch.append(word.charAt(i))) {
+				skipped++;
+			}
+			if (scratch.isFull()) {
+				runs = appendRuns(runs, scratch);
+				scratch.reset();
+			}
+		}
+		return new Entry(appendRuns(runs, scratch), skipped);
+	}
+
+	// runs followed by a program's runs (header excluded)
+	private static byte[] appendRuns(byte[] runs, MorseProgram program) {
+		int count = program.length() - MorseProgram.HEADER_SIZE;
+		byte[] joined = Arrays.copyOf(runs, runs.length + count);
+		System.arraycopy(program.array(), MorseProgram.HEADER_SIZE, joined, runs.length, count);
+		return joined;
+	}
+}
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+* Non-blocking TCP engine for SerialServer.
+*
+* A single selector thread accepts connections, reads and frames command lines,
+* and writes queued output for every client. Other threads (broadcast, heartbeat)
+* only enqueue output and wake the selector, so thousands of monitoring clients
+* cost a few buffers each instead of a thread each. Outbound queues are bounded
+* like the thread-per-client handlers' and share their SlowConsumerPolicy.
+* A client whose command targets a full serial send queue is not read from until
+* the queue has room, so streams are paced at line rate without blocking the selector.
+*/
+class NioServerEngine {
+	private static final long PAUSED_RETRY_MS = 10;
+
+	private final SerialServer server;
+	private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+	// Clients holding back a command for a full serial send queue (selector thread only)
+	private final Set<NioConnection> pausedInput = new HashSet<>();
+	private Selector selector;
+
+	NioServerEngine(SerialServer server) {
+		this.server = server;
+	}
+
+	/**
+	* Run the selector loop on the calling thread.
+	*/
+	void run(int tcpPort) throws IOException {
+		selector = Selector.open();
+		try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+			serverChannel.bind(new InetSocketAddress(tcpPort));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+			System.out.println("SerialServer (NIO) started. Listening on TCP port " + tcpPort);
+
+			while (serverChannel.isOpen()) {
+				selector.select(pausedInput.isEmpty() ? 0 : PAUSED_RETRY_MS);
+
+				// Output queued by other threads since the last pass
+				NioConnection pending;
+				while ((pending = pendingWrites.poll()) != null) {
+					pending.flush();
+				}
+
+				// Retry held-back commands; the serial write threads free room at line rate
+				for (NioConnection paused : new ArrayList<>(pausedInput)) {
+					paused.process();
+				}
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) continue;
+
+					if (key.isAcceptable()) {
+						accept(serverChannel);
+						continue;
+					}
+
+					NioConnection conn = (NioConnection) key.attachment();
+					if (key.isReadable()) {
+						conn.read();
+					}
+					if (key.isValid() && key.isWritable()) {
+						conn.flush();
+					}
+				}
+			}
+		} finally {
+			selector.close();
+		}
+	}
+
+	// A failure here (peer reset before registration, out of file descriptors, ...)
+	// costs only that connection; the selector loop keeps serving everyone else
+	private void accept(ServerSocketChannel serverChannel) {
+		SocketChannel channel = null;
+		try {
+			channel = serverChannel.accept();
+			if (channel == null) return;
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+			NioConnection conn = new NioConnection(channel, key);
+			key.attach(conn);
+			server.register(conn);
+			conn.send(SerialServer.WELCOME_MESSAGE);
+		} catch (IOException e) {
+			System.err.println("Failed to accept a client: " + e.getMessage());
+			if (channel != null) {
+				try {
+					channel.close(); // also cancels its key
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	* One client: read buffer + inbound decoder, and a bounded queue of encoded
+	* output. The line being written is taken off the queue first, so COALESCE
+	* (which drops the oldest queued lines from any thread) never cuts one short.
+	*/
+	private class NioConnection implements SerialServer.ClientConnection {
+		private final SocketChannel channel;
+		private final SelectionKey key;
+		private final String clientAddress;
+		private final ByteBuffer readBuf = ByteBuffer.allocate(SerialServer.READ_BUFFER_SIZE);
+		private final SerialServer.ClientInput input;
+		private final BlockingQueue<SerialServer.EncodedLine> outbound =
+		new ArrayBlockingQueue<>(SerialServer.CLIENT_QUEUE_CAPACITY);
+		private ByteBuffer writing; // partly written line (selector thread only)
+		private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+		private volatile boolean active = true;
+		private volatile boolean closing; // QUIT: write what is queued, then close
+		private volatile boolean binaryProtocol;
+		private volatile long lastHeartbeatTime;
+		private volatile long lastSendTime;
+		private final SerialServer.ClientMetrics metrics;
+
+		NioConnection(SocketChannel channel, SelectionKey key) throws IOException {
+			this.channel = channel;
+			this.key = key;
+			this.clientAddress = channel.getRemoteAddress().toString();
+			this.lastHeartbeatTime = System.currentTimeMillis();
+			this.input = server.new ClientInput(this, true);
+			this.metrics = new SerialServer.ClientMetrics(this);
+		}
+
+		public int getQueueDepth() {
+			return outbound.size() + (writing != null ? 1 : 0);
+		}
+
+		public SerialServer.ClientMetrics getMetrics() {
+			return metrics;
+		}
+
+		public String getClientAddress() {
+			return clientAddress;
+		}
+
+		public long getLastHeartbeatTime() {
+			return lastHeartbeatTime;
+		}
+
+		public void updateHeartbeat() {
+			this.lastHeartbeatTime = System.currentTimeMillis();
+		}
+
+		public long getLastSendTime() {
+			return lastSendTime;
+		}
+
+		public boolean isBinaryProtocol() {
+			return binaryProtocol;
+		}
+
+		public void setBinaryProtocol() {
+			binaryProtocol = true;
+		}
+
+		/**
+		* Queue a line for this client; safe from any thread. The line's bytes are
+		* shared, the selector writes them through a read-only cursor.
+		*/
+		public void send(SerialServer.EncodedLine line) {
+			if (!active || closing) return;
+			if (!server.enqueue(this, outbound, line)) return;
+			lastSendTime = System.currentTimeMillis();
+			if (flushRequested.compareAndSet(false, true)) {
+				pendingWrites.add(this);
+				selector.wakeup();
+			}
+		}
+
+		// Selector thread: read what is available and handle every complete line or frame
+		void read() {
+			try {
+				if (channel.read(readBuf) < 0) {
+					close();
+					return;
+				}
+			} catch (IOException e) {
+				close();
+				return;
+			}
+			process();
+		}
+
+		// Selector thread: hand buffered input to the decoder. A command held back
+		// for a full serial send queue keeps the rest buffered and stops reading.
+		void process() {
+			if (!active) {
+				pausedInput.remove(this);
+				return;
+			}
+			readBuf.flip();
+			boolean open = input.resume() && (input.isPaused() || input.feed(readBuf));
+			readBuf.compact();
+			if (!open) {
+				// Stop reading; flush() closes once the replies ("Goodbye!") are out.
+				// A peer that never reads them times out like any silent client.
+				closing = true;
+				pausedInput.remove(this);
+				flush();
+				return;
+			}
+			boolean changed = input.isPaused() ? pausedInput.add(this) : pausedInput.remove(this);
+			if (changed) {
+				try {
+					key.interestOps((key.interestOps() & SelectionKey.OP_WRITE) | readOps());
+				} catch (CancelledKeyException e) {
+					close();
+				}
+			}
+		}
+
+		private int readOps() {
+			return (closing || input.isPaused()) ? 0 : SelectionKey.OP_READ;
+		}
+
+		// Selector thread: write as much queued output as the socket accepts
+		void flush() {
+			if (!active) return;
+			flushRequested.set(false);
+			int readOp = readOps();
+			try {
+				while (writing != null || (writing = next()) != null) {
+					channel.write(writing);
+					if (writing.hasRemaining()) {
+						// Socket buffer full: resume when writable
+						key.interestOps(readOp | SelectionKey.OP_WRITE);
+						return;
+					}
+					writing = null;
+				}
+				metrics.drained();
+				if (closing) {
+					close();
+					return;
+				}
+				key.interestOps(readOp);
+			} catch (IOException | CancelledKeyException e) {
+				close();
+			}
+		}
+
+		private ByteBuffer next() {
+			SerialServer.EncodedLine line = outbound.poll();
+			return (line == null) ? null : line.buffer();
+		}
+
+		public void close() {
+			if (!active) return;
+			active = false;
+			server.unregister(this);
+			outbound.clear();
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+}
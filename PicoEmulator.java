@@ -0,0 +1,369 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* Java stand-in for the Pico firmware (pico_codes.ino) on a virtual serial link.
+*
+* Mirrors namo::SerialProtocol: 8-byte big-endian header, key, value, type byte;
+* MAX_KEY_SIZE 256 / MAX_VALUE_SIZE 2048 (empty keys/values rejected); every
+* read waits at most 1 s per byte (readExactly) and a failed frame drops
+* whatever input is pending. Messages are handled like processMsg() with real
+* delay() timing (LED_TOGGLE, MORSE_PROGRAM), then acknowledged like
+* onMessageReceived(): "<key>_ack" with "<value>_ack" (TEXT) or the same bytes
+* (BINARY). LED changes are reported to a LedListener as a timeline.
+*
+* Attaching:
+*  - "emu://<name>" as a SerialCommunication / SerialServer port starts a board
+*    on an in-memory link (one per name), e.g.
+*      java SerialServer 9000 emu://board1 9600 8N1 emu://board2 9600 8N1
+*    "emu://<name>?timeline" also prints the board's LED timeline (PRINT_TIMELINE).
+*  - java PicoEmulator <device> [baud] runs a board on a tty, e.g. the device
+*    side of a pty:// port.
+*/
+public class PicoEmulator {
+
+	public static final String SCHEME = "emu";
+
+	// namo::SerialProtocol limits
+	public static final int MAX_KEY_SIZE = 256;
+	public static final int MAX_VALUE_SIZE = 2048;
+	public static final int HEADER_SIZE = 8;
+	public static final byte MSG_TYPE_TEXT = 0;
+	public static final byte MSG_TYPE_BINARY = 1;
+	public static final String MORSE_PROGRAM_KEY = "MORSE_PROGRAM";
+
+	private static final int READ_EXACTLY_TIMEOUT_MS = 1000;
+	private static final int BOOT_BLINK_MS = 500;
+
+	private static final Map<String, PicoEmulator> boards = new ConcurrentHashMap<>();
+
+	/**
+	* Receives every LED change; atMillis is relative to the board's start.
+	*/
+	public interface LedListener {
+		void onLedChange(String board, long atMillis, boolean core0, boolean core1);
+	}
+
+	// Prints "[EMU board] +1234 ms LED core0=on core1=on"
+	public static final LedListener PRINT_TIMELINE = (board, atMillis, core0, core1) ->
+	System.out.printf("[EMU %s] +%d ms LED core0=%s core1=%s%n", board, atMillis,
+	core0 ? "on" : "off", core1 ? "on" : "off");
+
+	private final String name;
+	private final SerialTransport transport;
+	private final boolean wireless; // PICO_WIRELESS_BOARD: second LED on the CYW43 chip
+	private final AtomicBoolean running = new AtomicBoolean(true);
+	private final long startNanos = System.nanoTime();
+	private volatile LedListener ledListener;
+	private Thread loopThread;
+
+	// LED state (loop thread only)
+	private boolean core0LedState;
+	private boolean core1LedState;
+
+	// Bytes already read from the transport but not consumed (loop thread only)
+	private final byte[] rx = new byte[4096];
+	private int rxPos, rxLen;
+
+	private final AtomicLong messagesReceived = new AtomicLong();
+	private final AtomicLong framesDropped = new AtomicLong();
+	private final AtomicLong acksSent = new AtomicLong();
+
+	public PicoEmulator(String name, SerialTransport transport, boolean wireless, LedListener ledListener) {
+		this.name = name;
+		this.transport = transport;
+		this.wireless = wireless;
+		this.ledListener = ledListener;
+	}
+
+	/**
+	* Run the board on the device end of loopback link `linkName`.
+	*/
+	public static PicoEmulator onLoopback(String linkName, int baudRate, LedListener ledListener) {
+		SerialTransport.Settings settings = new SerialTransport.Settings(baudRate, 8, 1, 0, 100, 1000);
+		return new PicoEmulator(linkName, LoopbackTransport.link(linkName).device(settings), true, ledListener);
+	}
+
+	/**
+	* Transport factory for "emu://<name>[?timeline][&loop options]": starts the board
+	* once and returns the host end of loop://emu-<name> (same options: latency,
+	* jitter, ...). With "timeline" the board prints its LED changes.
+	*/
+	static SerialTransport forPort(String portName, SerialTransport.Settings settings) {
+		String boardName = SerialTransports.nameOf(portName);
+		String linkName = SCHEME + "-" + boardName;
+		PicoEmulator board = boards.computeIfAbsent(boardName, n -> new PicoEmulator(n,
+		LoopbackTransport.link(linkName).device(new SerialTransport.Settings(settings.baudRate, 8, 1, 0, 100, 1000)),
+		true, null).start());
+		if (SerialTransports.optionsOf(portName).containsKey("timeline")) {
+			board.setLedListener(PRINT_TIMELINE);
+		}
+		return LoopbackTransport.forPort(LoopbackTransport.SCHEME + "://" + linkName
+		+ portName.substring(SCHEME.length() + 3 + boardName.length()), settings);
+	}
+
+	/**
+	* The board started for "emu://<name>", or null.
+	*/
+	public static PicoEmulator board(String name) {
+		return boards.get(name);
+	}
+
+	public void setLedListener(LedListener listener) {
+		this.ledListener = listener;
+	}
+
+	public long getMessagesReceived() { return messagesReceived.get(); }
+	public long getFramesDropped()    { return framesDropped.get(); }
+	public long getAcksSent()         { return acksSent.get(); }
+
+	/**
+	* setup() then loop() on a daemon thread.
+	*/
+	public PicoEmulator start() {
+		loopThread = new Thread(() -> {
+			setup();
+			while (running.get()) {
+				process();
+			}
+			transport.close();
+		}, "PicoEmulator-" + name);
+		loopThread.setDaemon(true);
+		loopThread.start();
+		return this;
+	}
+
+	public void stop() {
+		if (running.compareAndSet(true, false) && loopThread != null) {
+			loopThread.interrupt();
+		}
+	}
+
+	private void setup() {
+		openTransport();
+		toggleCore0LED();
+		delay(BOOT_BLINK_MS);
+		toggleCore0LED();
+		if (wireless) {
+			toggleCore1LED();
+			delay(BOOT_BLINK_MS);
+			toggleCore1LED();
+		}
+	}
+
+	// serialProto.process(): one frame, or drop pending input on any error
+	private void process() {
+		if (!awaitAvailable()) {
+			return;
+		}
+		byte[] header = new byte[HEADER_SIZE];
+		if (!readExactly(header, HEADER_SIZE)) {
+			dropFrame();
+			return;
+		}
+		ByteBuffer lengths = ByteBuffer.wrap(header);
+		long keyLength = Integer.toUnsignedLong(lengths.getInt());
+		long valueLength = Integer.toUnsignedLong(lengths.getInt());
+		if (keyLength == 0 || keyLength > MAX_KEY_SIZE || valueLength == 0 || valueLength > MAX_VALUE_SIZE) {
+			dropFrame();
+			return;
+		}
+
+		byte[] key = new byte[(int) keyLength];
+		byte[] value = new byte[(int) valueLength];
+		byte[] type = new byte[1];
+		if (!readExactly(key, key.length) || !readExactly(value, value.length) || !readExactly(type, 1)) {
+			dropFrame();
+			return;
+		}
+		messagesReceived.incrementAndGet();
+		onMessageReceived(cString(key), value, type[0]);
+	}
+
+	private void onMessageReceived(String key, byte[] value, byte msgType) {
+		processMsg(key, value, msgType);
+
+		// snprintf into MAX_KEY_SIZE / MAX_VALUE_SIZE buffers truncates
+		String newKey = truncate(key + "_ack", MAX_KEY_SIZE - 1);
+		if (msgType == MSG_TYPE_TEXT) {
+			String newValue = truncate(cString(value) + "_ack", MAX_VALUE_SIZE - 1);
+			writeMessage(newKey, newValue.getBytes(StandardCharsets.ISO_8859_1), MSG_TYPE_TEXT);
+		} else if (msgType == MSG_TYPE_BINARY) {
+			writeMessage(newKey, value, MSG_TYPE_BINARY);
+		}
+	}
+
+	private void processMsg(String key, byte[] value, byte msgType) {
+		// The firmware compares only the first 8 characters (strncmp(key, "LED_TOGGLE", 8))
+		if (msgType == MSG_TYPE_BINARY && key.startsWith("LED_TOGG")) {
+			int waitVal = 10 * ((value.length > 1) ? (value[1] & 0xFF) : 0); // value[1] is the '\0' terminator if absent
+			int count = value[0] & 0xFF;
+			for (int i = 0; i < count && i < 255; i++) {
+				toggleCore0LED();
+				toggleCore1LED();
+				delay(waitVal);
+				toggleCore0LED();
+				toggleCore1LED();
+				delay(waitVal);
+			}
+		} else if (msgType == MSG_TYPE_BINARY && key.equals(MORSE_PROGRAM_KEY)) {
+			// [unitMs hi][unitMs lo] then runs: bit 7 = LED level, bits 0-6 = length in units
+			if (value.length > 2) {
+				int unitMs = ((value[0] & 0xFF) << 8) | (value[1] & 0xFF);
+				for (int i = 2; i < value.length; i++) {
+					setLEDs((value[i] & 0x80) != 0);
+					delay((value[i] & 0x7F) * unitMs);
+				}
+				setLEDs(false);
+			}
+		}
+	}
+
+	private void toggleCore0LED() {
+		core0LedState = !core0LedState;
+		reportLeds();
+	}
+
+	private void toggleCore1LED() {
+		if (!wireless) {
+			return;
+		}
+		core1LedState = !core1LedState;
+		reportLeds();
+	}
+
+	private void setLEDs(boolean on) {
+		if (core0LedState != on) toggleCore0LED();
+		if (wireless && core1LedState != on) toggleCore1LED();
+	}
+
+	private void reportLeds() {
+		LedListener listener = ledListener;
+		if (listener != null) {
+			long atMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+			listener.onLedChange(name, atMillis, core0LedState, core1LedState);
+		}
+	}
+
+	private void writeMessage(String key, byte[] value, byte type) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.ISO_8859_1);
+		if (keyBytes.length > MAX_KEY_SIZE || value.length > MAX_VALUE_SIZE) {
+			return;
+		}
+		ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + value.length + 1);
+		frame.putInt(keyBytes.length).putInt(value.length).put(keyBytes).put(value).put(type);
+		byte[] data = frame.array();
+		int offset = 0;
+		while (offset < data.length && running.get()) {
+			int written = transport.write(data, data.length - offset, offset);
+			if (written < 0) {
+				return; // link down; the frame is lost like on an unplugged board
+			}
+			offset += written;
+		}
+		acksSent.incrementAndGet();
+	}
+
+	// Block until at least one byte is available (Serial.available() > 0)
+	private boolean awaitAvailable() {
+		while (running.get() && rxPos == rxLen) {
+			if (!fill()) {
+				return false;
+			}
+		}
+		return rxPos < rxLen;
+	}
+
+	// readExactly(): each byte must arrive within 1 s of the previous one
+	private boolean readExactly(byte[] buffer, int length) {
+		int bytesRead = 0;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READ_EXACTLY_TIMEOUT_MS);
+		while (bytesRead < length) {
+			if (rxPos < rxLen) {
+				int n = Math.min(length - bytesRead, rxLen - rxPos);
+				System.arraycopy(rx, rxPos, buffer, bytesRead, n);
+				rxPos += n;
+				bytesRead += n;
+				deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READ_EXACTLY_TIMEOUT_MS);
+			} else if (System.nanoTime() > deadline || !running.get() || !fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// while (Serial.available()) Serial.read();
+	// Only what has already arrived goes; a frame sent right after is parsed as usual.
+	private void dropFrame() {
+		framesDropped.incrementAndGet();
+		rxPos = rxLen = 0;
+		int available;
+		while (running.get() && (available = transport.available()) > 0) {
+			if (transport.read(rx, Math.min(available, rx.length), 0) <= 0) {
+				break;
+			}
+		}
+	}
+
+	/**
+	* Read more input (waits up to the transport's read timeout). Returns false if
+	* the link is down, after waiting for it to come back.
+	*/
+	private boolean fill() {
+		int n = transport.read(rx, rx.length, 0);
+		if (n >= 0) {
+			rxPos = 0;
+			rxLen = n;
+			return true;
+		}
+		rxPos = rxLen = 0;
+		openTransport();
+		return false;
+	}
+
+	private void openTransport() {
+		while (running.get() && !transport.open()) {
+			delay(100);
+		}
+	}
+
+	private void delay(long ms) {
+		if (ms <= 0) return;
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			running.set(false);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// C string semantics: stop at the first '\0'
+	private static String cString(byte[] bytes) {
+		int end = 0;
+		while (end < bytes.length && bytes[end] != 0) end++;
+		return new String(bytes, 0, end, StandardCharsets.ISO_8859_1);
+	}
+
+	private static String truncate(String s, int max) {
+		return (s.length() <= max) ? s : s.substring(0, max);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 1) {
+			System.out.println("Usage: java PicoEmulator <device> [baud]");
+			System.out.println("  e.g. the device side of a pty:// port: java PicoEmulator /tmp/board1");
+			return;
+		}
+		int baud = (args.length > 1) ? Integer.parseInt(args[1]) : 9600;
+		SerialTransport.Settings settings = new SerialTransport.Settings(baud, 8, 1, 0, 100, 1000);
+		PicoEmulator board = new PicoEmulator(args[0], SerialTransports.create(args[0], settings), true,
+		PRINT_TIMELINE).start();
+		Runtime.getRuntime().addShutdownHook(new Thread(board::stop));
+		board.loopThread.join();
+	}
+}
@@ -0,0 +1,202 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+* A Linux pseudo-terminal as the serial link: "pty://<name>".
+*
+* Opening the port allocates a pty in raw mode and publishes its slave side as
+* the symlink <java.io.tmpdir>/<name>. That path behaves like a real serial
+* device, so anything that opens ttys (jSerialComm, a device emulator, screen,
+* another SerialCommunication) can play the board. This port talks to the pty
+* master.
+*
+* Java cannot open a pty master on its own, so a small helper process owns it
+* and relays bytes over its stdin/stdout: socat if installed, else python3.
+*/
+class PtyTransport implements SerialTransport {
+
+	public static final String SCHEME = "pty";
+
+	// Allocate a raw pty, print its slave path, relay master <-> stdio until stdin closes
+	private static final String PYTHON_RELAY = String.join("\n",
+	"import os, pty, select, sys, tty",
+	"master, slave = pty.openpty()",
+	"tty.setraw(slave)",
+	"link = sys.argv[1]",
+	"if os.path.lexists(link): os.remove(link)",
+	"os.symlink(os.ttyname(slave), link)",
+	"os.write(1, (os.ttyname(slave) + '\\n').encode())",
+	"try:",
+	"    while True:",
+	"        ready, _, _ = select.select([master, 0], [], [])",
+	"        if master in ready:",
+	"            try: data = os.read(master, 65536)",
+	"            except OSError: data = b''",
+	"            if data: os.write(1, data)",
+	"        if 0 in ready:",
+	"            data = os.read(0, 65536)",
+	"            if not data: break",
+	"            os.write(master, data)",
+	"finally:",
+	"    os.remove(link)");
+
+	private final String portName;
+	private final Settings settings;
+	private final File link;
+	private volatile Process helper;
+	private volatile OutputStream toPty;
+	private volatile LoopbackTransport.Wire fromPty;
+	private volatile String slavePath;
+
+	PtyTransport(String portName, Settings settings) {
+		this.portName = portName;
+		this.settings = settings;
+		this.link = new File(System.getProperty("java.io.tmpdir"), SerialTransports.nameOf(portName));
+	}
+
+	/**
+	* The device side to open (the symlink), valid once open() succeeded.
+	*/
+	public String getDevicePath() {
+		return link.getPath();
+	}
+
+	public boolean open() {
+		try {
+			Process process = startHelper();
+			InputStream in = process.getInputStream();
+			slavePath = readLine(in);
+			if (slavePath == null) {
+				process.destroy();
+				return false;
+			}
+			// socat creates the link itself, just after starting, and prints nothing
+			if (slavePath.isEmpty()) {
+				for (int i = 0; i < 100 && !link.exists(); i++) {
+					Thread.sleep(10);
+				}
+				slavePath = link.getCanonicalPath();
+			}
+			fromPty = new LoopbackTransport.Wire(64 * 1024);
+			toPty = process.getOutputStream();
+			helper = process;
+			startPump(in, fromPty);
+			System.out.printf("[INFO] Port %s: device side is %s (-> %s)%n", portName, link, slavePath);
+			return true;
+		} catch (IOException e) {
+			System.err.printf("[ERROR] Could not create pty for %s: %s%n", portName, e.getMessage());
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	public boolean isOpen() {
+		Process process = helper;
+		return process != null && process.isAlive();
+	}
+
+	public int read(byte[] buffer, int length, int offset) {
+		LoopbackTransport.Wire wire = fromPty;
+		return (wire == null) ? -1 : wire.read(buffer, length, offset, settings.readTimeoutMs);
+	}
+
+	public int available() {
+		LoopbackTransport.Wire wire = fromPty;
+		return (wire == null) ? 0 : wire.available();
+	}
+
+	public int write(byte[] data, int length, int offset) {
+		OutputStream out = toPty;
+		if (out == null) {
+			return -1;
+		}
+		try {
+			out.write(data, offset, length);
+			out.flush();
+			return length;
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	public void close() {
+		Process process = helper;
+		helper = null;
+		if (process != null) {
+			try {
+				process.getOutputStream().close(); // relay exits and removes the link
+				if (!process.waitFor(1, TimeUnit.SECONDS)) {
+					process.destroy();
+				}
+			} catch (IOException e) {
+				process.destroy();
+			} catch (InterruptedException e) {
+				process.destroy();
+				Thread.currentThread().interrupt();
+			}
+		}
+		LoopbackTransport.Wire wire = fromPty;
+		if (wire != null) {
+			wire.breakWire();
+		}
+	}
+
+	private Process startHelper() throws IOException {
+		ProcessBuilder builder;
+		if (onPath("socat")) {
+			// "-" is socat's stdio; it prints nothing, so echo an empty line first
+			builder = new ProcessBuilder("sh", "-c",
+			"echo; exec socat -b65536 - pty,raw,echo=0,link=\"$0\"", link.getPath());
+		} else if (onPath("python3")) {
+			builder = new ProcessBuilder("python3", "-c", PYTHON_RELAY, link.getPath());
+		} else {
+			throw new IOException("pty transport needs socat or python3 on the PATH");
+		}
+		return builder.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+	}
+
+	// Copy the helper's stdout (bytes from the pty) into the wire read by read()
+	private void startPump(InputStream in, LoopbackTransport.Wire wire) {
+		Thread pump = new Thread(() -> {
+			byte[] buf = new byte[8192];
+			try {
+				int n;
+				while ((n = in.read(buf)) >= 0) {
+					for (int off = 0; off < n; ) {
+						int written = wire.write(buf, n - off, off, 0, 0, 0, settings.writeTimeoutMs);
+						if (written < 0) return;
+						off += written;
+					}
+				}
+			} catch (IOException ignored) {
+			}
+			wire.breakWire(); // helper gone: reads report a disconnect
+		}, "PtyPump-" + portName);
+		pump.setDaemon(true);
+		pump.start();
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int b;
+		while ((b = in.read()) >= 0 && b != '\n') {
+			line.append((char) b);
+		}
+		return (b < 0) ? null : new String(line.toString().getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+	}
+
+	private static boolean onPath(String program) {
+		String path = System.getenv("PATH");
+		if (path == null) return false;
+		for (String dir : path.split(File.pathSeparator)) {
+			if (new File(dir, program).canExecute()) return true;
+		}
+		return false;
+	}
+}
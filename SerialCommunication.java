@@ -6,6 +6,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.lang.Thread;
 
 /**
@@ -24,6 +25,15 @@ import java.lang.Thread;
 public class SerialCommunication {
 	
 	private static final int RECONNECT_DELAY_MS = 300; // Delay between reconnection attempts
+	private static final int READ_TIMEOUT_MS = 100;    // Max time a read blocks in the driver before re-checking shutdown
+	private static final int WRITE_TIMEOUT_MS = 1000;  // Max time a write blocks before returning a partial count
+	private static final int DEFAULT_MAX_BATCH_BYTES = 4096;  // Max bytes coalesced into one write burst
+	private static final long DEFAULT_MAX_LINGER_MICROS = 0;  // Extra wait for more messages before writing
+	private static final int SEND_QUEUE_CAPACITY = 256;       // Messages per port; publishers wait when full
+	static final long SEND_TIMEOUT_MS = 1000;                 // Max wait for room in a connected port's full queue
+	// Per-frame [DEBUG] lines; counts and timings are always in Metrics.DEFAULT
+	private static final boolean DEBUG = Boolean.getBoolean("serial.debug");
+	private static final AtomicInteger nextSubscriptionId = new AtomicInteger();
 	
 	// Message Types
 	public enum MessageType {
@@ -45,6 +55,7 @@ public class SerialCommunication {
 		private final byte[] value;
 		private final MessageType type;
 		private final String sourcePort;
+		private byte[] keyBytes; // encoded on first send
 		
 		public Message(String key, byte[] value, MessageType type, String sourcePort) {
 			this.key = key;
@@ -57,6 +68,13 @@ public class SerialCommunication {
 		public byte[] getValue()      { return value; }
 		public MessageType getType()  { return type; }
 		public String getSourcePort() { return sourcePort; }
+		
+		byte[] getKeyBytes() {
+			if (keyBytes == null) {
+				keyBytes = key.getBytes();
+			}
+			return keyBytes;
+		}
 	}
 	
 	// Subscriber interface
@@ -64,22 +82,303 @@ public class SerialCommunication {
 		void onMessage(Message message);
 	}
 	
+	// What an asynchronous subscription does when its queue is full
+	public enum OverflowPolicy {
+		BLOCK,       // wait for space (stalls the read thread)
+		DROP_OLDEST, // discard the oldest queued message
+		DROP_NEWEST  // discard the incoming message
+	}
+	
+	/**
+	* Delivery to one subscriber, inline on the read thread.
+	*/
+	private static class Subscription {
+		protected final Subscriber subscriber;
+		protected final String id = String.valueOf(nextSubscriptionId.incrementAndGet()); // metrics label
+		private final LatencyHistogram dispatchTime = Metrics.DEFAULT.histogram("serial_dispatch_seconds",
+		"Time spent in a subscriber's onMessage", "subscriber", id);
+		
+		Subscription(Subscriber subscriber) {
+			this.subscriber = subscriber;
+		}
+		
+		void deliver(Message message) {
+			invoke(message);
+		}
+		
+		long getDropped() {
+			return 0;
+		}
+		
+		protected void invoke(Message message) {
+			long start = System.nanoTime();
+			try {
+				subscriber.onMessage(message);
+			} catch (Exception e) {
+				System.err.printf("[ERROR] Subscriber failed on key=%s: %s%n", message.getKey(), e.getMessage());
+			}
+			dispatchTime.record(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	* Delivery through a bounded queue drained on an executor, so a slow subscriber
+	* never holds up the read thread. At most one drain task per subscriber runs at
+	* a time, which keeps messages in order.
+	*/
+	private static class AsyncSubscription extends Subscription {
+		private final BlockingQueue<Message> queue;
+		private final Executor executor;
+		private final OverflowPolicy policy;
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+		private final Metrics.Counter dropped = Metrics.DEFAULT.counter("serial_subscriber_dropped_total",
+		"Messages discarded by a subscriber's overflow policy", "subscriber", id);
+		
+		AsyncSubscription(Subscriber subscriber, Executor executor, int queueCapacity, OverflowPolicy policy) {
+			super(subscriber);
+			this.queue = new ArrayBlockingQueue<>(queueCapacity);
+			this.executor = executor;
+			this.policy = policy;
+			Metrics.DEFAULT.gauge("serial_subscriber_queue_depth", "Messages waiting for an asynchronous subscriber",
+			queue::size, "subscriber", id);
+		}
+		
+		@Override
+		void deliver(Message message) {
+			switch (policy) {
+				case BLOCK:
+					try {
+						queue.put(message);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+					break;
+				case DROP_OLDEST:
+					while (!queue.offer(message)) {
+						if (queue.poll() != null) {
+							dropped.inc();
+						}
+					}
+					break;
+				case DROP_NEWEST:
+					if (!queue.offer(message)) {
+						dropped.inc();
+						return;
+					}
+					break;
+			}
+			schedule();
+		}
+		
+		@Override
+		long getDropped() {
+			return dropped.get();
+		}
+		
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					scheduled.set(false); // executor shut down
+				}
+			}
+		}
+		
+		private void drain() {
+			do {
+				Message message;
+				while ((message = queue.poll()) != null) {
+					invoke(message);
+				}
+				scheduled.set(false);
+				// A message may have arrived after the last poll but before the flag cleared
+			} while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+		}
+	}
+	
+	/**
+	* Incremental frame parser over a reusable ring buffer.
+	*
+	* The read thread fills the ring with whatever the driver has in one call,
+	* then next() walks HEADER -> KEY -> VALUE -> TYPE as far as the buffered
+	* bytes allow. Only the value array of each frame is allocated; the key
+	* String is reused while consecutive frames carry the same key.
+	*/
+	static class FrameParser {
+		private static final int RING_SIZE = 8192; // power of two
+		private static final int RING_MASK = RING_SIZE - 1;
+		private static final int HEADER_SIZE = 8;
+		private static final int MAX_KEY_SIZE = 1024;
+		private static final int MAX_VALUE_SIZE = 4096;
+		
+		private enum State { HEADER, KEY, VALUE, TYPE }
+		
+		private final String portName;
+		private final byte[] ring = new byte[RING_SIZE];
+		private int readPos;  // total bytes consumed (wraps; masked for indexing)
+		private int writePos; // total bytes committed
+		
+		private State state = State.HEADER;
+		private int keyLength, valueLength, filled;
+		private final byte[] keyBytes = new byte[MAX_KEY_SIZE];
+		private byte[] valueBytes;
+		
+		// Last decoded key, reused when the next frame's key bytes match
+		private final byte[] lastKeyBytes = new byte[MAX_KEY_SIZE];
+		private int lastKeyLength = -1;
+		private String lastKey;
+		
+		private final Metrics.Counter invalidHeaders;
+		private final Metrics.Counter parseErrors;
+		
+		FrameParser(String portName) {
+			this.portName = portName;
+			this.invalidHeaders = Metrics.DEFAULT.counter("serial_invalid_headers_total",
+			"Frame headers with a key or value length out of range", "port", portName);
+			this.parseErrors = Metrics.DEFAULT.counter("serial_parse_errors_total",
+			"Frames with an unknown message type byte", "port", portName);
+		}
+		
+		byte[] buffer()    { return ring; }
+		int writeOffset()  { return writePos & RING_MASK; }
+		
+		/**
+		* Free space that can be filled with one contiguous read
+		*/
+		int writableBytes() {
+			int free = RING_SIZE - (writePos - readPos);
+			return Math.min(free, RING_SIZE - writeOffset());
+		}
+		
+		void commit(int count) {
+			writePos += count;
+		}
+		
+		void reset() {
+			readPos = writePos = 0;
+			state = State.HEADER;
+			valueBytes = null;
+		}
+		
+		private int available() {
+			return writePos - readPos;
+		}
+		
+		private int readInt() {
+			int v = 0;
+			for (int i = 0; i < 4; i++) {
+				v = (v << 8) | (ring[readPos++ & RING_MASK] & 0xFF);
+			}
+			return v;
+		}
+		
+		// Copy up to `length - filled` buffered bytes into dst; true when dst is complete
+		private boolean fill(byte[] dst, int length) {
+			int count = Math.min(length - filled, available());
+			while (count > 0) {
+				int start = readPos & RING_MASK;
+				int chunk = Math.min(count, RING_SIZE - start);
+				System.arraycopy(ring, start, dst, filled, chunk);
+				readPos += chunk;
+				filled += chunk;
+				count -= chunk;
+			}
+			return filled == length;
+		}
+		
+		/**
+		* Next complete frame from the buffered bytes, or null if more input is needed.
+		*/
+		Message next() {
+			while (true) {
+				switch (state) {
+					case HEADER:
+						if (available() < HEADER_SIZE) return null;
+						keyLength = readInt();
+						valueLength = readInt();
+						if (keyLength <= 0 || keyLength > MAX_KEY_SIZE ||
+						valueLength <= 0 || valueLength > MAX_VALUE_SIZE) {
+							invalidHeaders.inc();
+							System.err.printf("[ERROR: %s] Invalid header (keyLen=%d, valueLen=%d)%n",
+							portName, keyLength, valueLength);
+							continue;
+						}
+						filled = 0;
+						state = State.KEY;
+						break;
+						
+					case KEY:
+						if (!fill(keyBytes, keyLength)) return null;
+						filled = 0;
+						valueBytes = new byte[valueLength];
+						state = State.VALUE;
+						break;
+						
+					case VALUE:
+						if (!fill(valueBytes, valueLength)) return null;
+						state = State.TYPE;
+						break;
+						
+					case TYPE:
+						if (available() < 1) return null;
+						byte typeByte = ring[readPos++ & RING_MASK];
+						if (typeByte != 0 && typeByte != 1) {
+							parseErrors.inc(); // delivered as BINARY, as before
+						}
+						MessageType type = MessageType.fromByte(typeByte);
+						Message frame = new Message(decodeKey(), valueBytes, type, portName);
+						valueBytes = null;
+						state = State.HEADER;
+						return frame;
+				}
+			}
+		}
+		
+		private String decodeKey() {
+			if (keyLength != lastKeyLength
+			|| !Arrays.equals(keyBytes, 0, keyLength, lastKeyBytes, 0, keyLength)) {
+				System.arraycopy(keyBytes, 0, lastKeyBytes, 0, keyLength);
+				lastKeyLength = keyLength;
+				lastKey = new String(keyBytes, 0, keyLength);
+			}
+			return lastKey;
+		}
+	}
+	
 	// Internal SerialPortManager
-	private class SerialPortManager {
+	class SerialPortManager {
 		private final String portName;
 		private final int baudRate, dataBits, stopBits, parity;
 		private final AtomicBoolean running = new AtomicBoolean(true);
 		private AtomicBoolean isConnected = new AtomicBoolean(false);
 		
-		// The jSerialComm port
-		private volatile SerialPort serialPort;
+		// Line settings + timeouts for each (re)open
+		private final SerialTransport.Settings settings;
+		// The port's byte transport (jSerialComm, loopback, pty, ...)
+		private volatile SerialTransport transport;
 		// Worker threads
 		private Thread readThread;
 		private Thread writeThread;
 		private Thread reconnectThread;
 		
-		// Outgoing message queue
-		private final BlockingQueue<Message> sendQueue = new LinkedBlockingQueue<>();
+		// Outgoing message queue, bounded so publishers are paced at line rate
+		private final BlockingQueue<Message> sendQueue = new LinkedBlockingQueue<>(SEND_QUEUE_CAPACITY);
+		
+		// Reusable outbound frame buffer (write thread only)
+		private byte[] frameBuf = new byte[1024];
+		private ByteBuffer frameView = ByteBuffer.wrap(frameBuf).order(ByteOrder.BIG_ENDIAN);
+		// Dequeued but not written yet: did not fit in the last burst, or a failed
+		// write left them unsent; they go out first (write thread only)
+		private final Deque<Message> retry = new ArrayDeque<>();
+		private final List<Message> burst = new ArrayList<>(); // frames in frameBuf, in order
+		
+		// Inbound ring buffer + frame parser (read thread only)
+		private final FrameParser frameParser;
+		
+		// Metrics (label port=<portName>)
+		private final Metrics.Counter framesIn, bytesIn, framesOut, bytesOut, writeErrors, reconnects;
 		
 		public SerialPortManager(String portName, int baudRate, int dataBits, int stopBits, int parity) {
 			this.portName = portName;
@@ -87,6 +386,19 @@ public class SerialCommunication {
 			this.dataBits = dataBits;
 			this.stopBits = stopBits;
 			this.parity = parity;
+			this.settings = new SerialTransport.Settings(baudRate, dataBits, stopBits, parity,
+			READ_TIMEOUT_MS, WRITE_TIMEOUT_MS);
+			this.frameParser = new FrameParser(portName);
+			
+			Metrics metrics = Metrics.DEFAULT;
+			framesIn = metrics.counter("serial_frames_in_total", "Frames received from the device", "port", portName);
+			bytesIn = metrics.counter("serial_bytes_in_total", "Bytes read from the port", "port", portName);
+			framesOut = metrics.counter("serial_frames_out_total", "Frames written to the device", "port", portName);
+			bytesOut = metrics.counter("serial_bytes_out_total", "Bytes written to the port", "port", portName);
+			writeErrors = metrics.counter("serial_write_errors_total", "Failed writes (port lost)", "port", portName);
+			reconnects = metrics.counter("serial_reconnects_total", "Successful reopens after a disconnect", "port", portName);
+			metrics.gauge("serial_send_queue_depth", "Messages waiting for the write thread", sendQueue::size, "port", portName);
+			metrics.gauge("serial_connected", "1 while the port is open", () -> isConnected.get() ? 1 : 0, "port", portName);
 			
 			// Attempt to open port initially
 			if (!initializePort()) {
@@ -101,16 +413,8 @@ public class SerialCommunication {
 		*/
 		private boolean initializePort() {
 			try {
-				serialPort = SerialPort.getCommPort(portName);
-				serialPort.setBaudRate(baudRate);
-				serialPort.setNumDataBits(dataBits);
-				serialPort.setNumStopBits(stopBits);
-				serialPort.setParity(parity);
-				
-				// Non-blocking I/O
-				serialPort.setComPortTimeouts(SerialPort.TIMEOUT_NONBLOCKING, 0, 0);
-				
-				if (!serialPort.openPort()) {
+				transport = SerialTransports.create(portName, settings);
+				if (!transport.open()) {
 					System.err.printf("[ERROR] Failed to open port: %s%n", portName);
 					this.isConnected.set(false);
 					return false;
@@ -142,62 +446,39 @@ public class SerialCommunication {
 			}
 			
 			// READ THREAD
-			readThread = new Thread(() -> {
-				final ByteBuffer headerBuf = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
-				
+			readThread = executionMode.newNativeIoThread("ReadThread-" + portName, () -> {
 				while (running.get()) {
 					try {
 						if (!isConnected.get()){
+							frameParser.reset(); // drop any partial frame from before the disconnect
 							Thread.sleep(10);
 							continue;
 						}
 						
-						headerBuf.clear();
-						if (!readFully(headerBuf)) {
-							// Not enough data right now or disconnection
-							Thread.sleep(10);
-							continue;
-						}
-						
-						headerBuf.flip();
-						int keyLength   = headerBuf.getInt();
-						int valueLength = headerBuf.getInt();
-						
-						if (keyLength <= 0 || keyLength > 1024 ||
-						valueLength <= 0 || valueLength > 4096) {
-							System.err.printf("[ERROR: %s] Invalid header (keyLen=%d, valueLen=%d)%n",
-							portName, keyLength, valueLength);
-							continue;
-						}
-						
-						// Read key
-						byte[] keyBytes = new byte[keyLength];
-						if (!readFully(keyBytes)) {
-							System.err.printf("[ERROR: %s] Partial key read%n", portName);
+						// One driver call drains whatever is available into the ring
+						int read = transport.read(frameParser.buffer(),
+						frameParser.writableBytes(), frameParser.writeOffset());
+						if (read == -1) {
+							System.err.printf("[ERROR: %s] read == -1 (disconnect detected)%n", portName);
+							handleDisconnection();
 							continue;
 						}
-						
-						// Read value
-						byte[] valueBytes = new byte[valueLength];
-						if (!readFully(valueBytes)) {
-							System.err.printf("[ERROR: %s] Partial value read%n", portName);
-							continue;
+						if (read == 0) {
+							continue; // timed out with no data, re-check running
 						}
+						frameParser.commit(read);
+						bytesIn.add(read);
 						
-						// Read type
-						byte[] typeByte = new byte[1];
-						if (!readFully(typeByte)) {
-							System.err.printf("[ERROR: %s] Partial type read%n", portName);
-							continue;
+						Message inbound;
+						while ((inbound = frameParser.next()) != null) {
+							framesIn.inc();
+							if (DEBUG) {
+								System.out.printf("[DEBUG: %s] Received: key=%s, valueLen=%d, type=%s%n",
+								portName, inbound.getKey(), inbound.getValue().length, inbound.getType());
+							}
+							notifySubscribers(inbound);
 						}
 						
-						MessageType msgType = MessageType.fromByte(typeByte[0]);
-						System.out.printf("[DEBUG: %s] Received: key=%s, valueLen=%d, type=%s%n",
-						portName, new String(keyBytes), valueLength, msgType);
-						
-						Message inbound = new Message(new String(keyBytes), valueBytes, msgType, portName);
-						notifySubscribers(inbound);
-						
 					} catch (Exception e) {}/* catch (InterruptedException ie) {
 						// Possibly shutting down
 						if (!running.get()) {
@@ -213,11 +494,11 @@ public class SerialCommunication {
 						}
 					}*/
 				}
-			}, "ReadThread-" + portName);
+			});
 			readThread.start();
 			
 			// WRITE THREAD
-			writeThread = new Thread(() -> {
+			writeThread = executionMode.newNativeIoThread("WriteThread-" + portName, () -> {
 				while (running.get()) {
 					try {
 						if (!isConnected.get()){
@@ -225,49 +506,46 @@ public class SerialCommunication {
 							continue;
 						}
 						
-						Message msg = sendQueue.take();
+						// Coalesce queued messages into one burst, bounded by the batch policy
+						int batchBytes = maxBatchBytes;
+						long lingerNanos = TimeUnit.MICROSECONDS.toNanos(maxLingerMicros);
 						
-						byte[] keyBytes   = msg.getKey().getBytes();
-						byte[] valueBytes = msg.getValue();
+						Message msg = !retry.isEmpty() ? retry.poll() : sendQueue.take();
+						long lingerDeadline = System.nanoTime() + lingerNanos;
+						int length = 0;
+						burst.clear();
 						
-						ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
-						header.putInt(keyBytes.length).putInt(valueBytes.length);
-						
-						System.out.printf("[DEBUG: %s] Sending message: key=%s, valueLen=%d, type=%s%n",
-						portName, msg.getKey(), valueBytes.length, msg.getType());
-						
-						// Write the header
-						int written = serialPort.writeBytes(header.array(), 8);
-						if (written < 0) {
-							System.err.printf("[ERROR: %s] Write error on header (disconnect?)%n", portName);
-							handleDisconnection();
-							continue;
-							//break;
-						}
-						
-						// Write key
-						written = serialPort.writeBytes(keyBytes, keyBytes.length);
-						if (written < 0) {
-							System.err.printf("[ERROR: %s] Write error on key (disconnect?)%n", portName);
-							handleDisconnection();
-							continue; //break;
+						while (msg != null) {
+							if (DEBUG) {
+								System.out.printf("[DEBUG: %s] Sending message: key=%s, valueLen=%d, type=%s%n",
+								portName, msg.getKey(), msg.getValue().length, msg.getType());
+							}
+							length = appendFrame(msg, length);
+							burst.add(msg);
+							
+							if (length >= batchBytes) break;
+							Message next = !retry.isEmpty() ? retry.poll()
+							: (lingerNanos > 0)
+							? sendQueue.poll(lingerDeadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+							: sendQueue.poll();
+							if (next != null && length + frameLength(next) > batchBytes) {
+								retry.addFirst(next); // starts the next burst
+								break;
+							}
+							msg = next;
 						}
 						
-						// Write value
-						written = serialPort.writeBytes(valueBytes, valueBytes.length);
-						if (written < 0) {
-							System.err.printf("[ERROR: %s] Write error on value (disconnect?)%n", portName);
+						int written = writeFully(frameBuf, length);
+						if (written < length) {
+							writeErrors.inc();
+							int requeued = requeueUnwritten(written);
+							System.err.printf("[ERROR: %s] Write error (disconnect?), %d frame(s) kept for retry%n",
+							portName, requeued);
 							handleDisconnection();
-							continue;//break;
-						}
-						
-						// Write type
-						written = serialPort.writeBytes(new byte[]{(byte) msg.getType().getValue()}, 1);
-						if (written < 0) {
-							System.err.printf("[ERROR: %s] Write error on type (disconnect?)%n", portName);
-							handleDisconnection();
-							continue; //break;
+							continue;
 						}
+						framesOut.add(burst.size());
+						bytesOut.add(length);
 						
 					} catch (Exception e) {} /*catch (InterruptedException e) {
 						// Possibly shutting down
@@ -282,7 +560,7 @@ public class SerialCommunication {
 						}
 					}*/
 				}
-			}, "WriteThread-" + portName);
+			});
 			writeThread.start();
 		}
 		
@@ -302,8 +580,8 @@ public class SerialCommunication {
 			//if (writeThread != null) writeThread.interrupt();
 			
 			// Close port
-			if (serialPort != null && serialPort.isOpen()) {
-				serialPort.closePort();
+			if (transport != null) {
+				transport.close();
 			}
 			isConnected.set(false);
 			// Start reconnection
@@ -320,13 +598,14 @@ public class SerialCommunication {
 				return;
 			}
 			
-			reconnectThread = new Thread(() -> {
+			reconnectThread = executionMode.newThread("ReconnectThread-" + portName, () -> {
 				while (running.get()) {
 					try {
 						Thread.sleep(RECONNECT_DELAY_MS);
 						System.out.printf("[INFO] Attempting to reconnect %s...%n", portName);
 						
 						if (initializePort()) {
+							reconnects.inc();
 							System.out.printf("[INFO] Successfully reconnected to %s%n", portName);
 							break;  // Done reconnecting
 						}
@@ -338,66 +617,96 @@ public class SerialCommunication {
 						portName, e.getMessage());
 					}
 				}
-			}, "ReconnectThread-" + portName);
+			});
 			reconnectThread.start();
 		}
 		
+		private int frameLength(Message msg) {
+			return 8 + msg.getKeyBytes().length + msg.getValue().length + 1;
+		}
+		
 		/**
-		* Read exactly `buf.remaining()` bytes into `buf`.
-		* If read returns -1, treat as disconnection.
+		* Serialize a message (header, key, value, type) into frameBuf at `offset`.
+		* Returns the new end of the buffered data.
 		*/
-		private boolean readFully(ByteBuffer buf) throws InterruptedException {
-			while (buf.hasRemaining() && running.get()) {
-				byte[] tmp = new byte[1];
-				int read = serialPort.readBytes(tmp, 1);
-				
-				if (read == -1) {
-					handleDisconnection();
-					return false;
-				}
-				
-				if (read > 0) {
-					buf.put(tmp[0]);
-				} else {
-					Thread.sleep(2); // no data yet
-				}
+		int appendFrame(Message msg, int offset) {
+			byte[] keyBytes   = msg.getKeyBytes();
+			byte[] valueBytes = msg.getValue();
+			int end = offset + frameLength(msg);
+			if (frameBuf.length < end) {
+				frameBuf = Arrays.copyOf(frameBuf, Math.max(end, frameBuf.length * 2));
+				frameView = ByteBuffer.wrap(frameBuf).order(ByteOrder.BIG_ENDIAN);
 			}
-			return !buf.hasRemaining();
+			
+			frameView.clear().position(offset);
+			frameView.putInt(keyBytes.length).putInt(valueBytes.length);
+			frameView.put(keyBytes).put(valueBytes);
+			frameView.put((byte) msg.getType().getValue());
+			return end;
 		}
 		
 		/**
-		* Overload to read into a byte[]
-		* If read returns -1, treat as disconnection.
+		* After a failed burst: count the frames that were written whole and put the
+		* rest (a partly written frame is sent again whole) back at the head of
+		* `retry`, in order. Returns the number of frames kept.
 		*/
-		private boolean readFully(byte[] array) throws InterruptedException {
+		private int requeueUnwritten(int written) {
+			int end = 0;
+			int sent = 0;
+			while (sent < burst.size() && (end += frameLength(burst.get(sent))) <= written) {
+				sent++;
+			}
+			framesOut.add(sent);
+			bytesOut.add(written);
+			for (int i = burst.size() - 1; i >= sent; i--) {
+				retry.addFirst(burst.get(i));
+			}
+			return burst.size() - sent;
+		}
+		
+		/**
+		* Write `length` bytes with as few driver calls as possible,
+		* continuing after partial writes. Returns the number of bytes written,
+		* less than `length` on a write error (or shutdown).
+		*/
+		private int writeFully(byte[] data, int length) {
 			int offset = 0;
-			while (offset < array.length && running.get()) {
-				int read = serialPort.readBytes(array, array.length - offset, offset);
-				
-				if (read == -1) {
-					System.err.printf("[ERROR: %s] read == -1 (disconnect detected)%n", portName);
-					handleDisconnection();
-					return false;
-				}
-				
-				if (read > 0) {
-					offset += read;
-				} else {
-					Thread.sleep(2); // no data yet
+			while (offset < length && running.get()) {
+				int written = transport.write(data, length - offset, offset);
+				if (written < 0) {
+					return offset;
 				}
+				offset += written; // 0: write timeout elapsed, try again
 			}
-			return (offset >= array.length);
+			return offset;
 		}
 		
 		/**
-		* Enqueue a message to be sent
+		* Enqueue a message to be sent. While the send queue is full, waits up to
+		* SEND_TIMEOUT_MS for the write thread to make room, or not at all if the
+		* port is disconnected (nothing drains the queue then).
+		* Throws IllegalStateException if the message was not queued.
 		*/
 		public void send(Message msg) {
+			if (sendQueue.offer(msg)) {
+				return;
+			}
+			if (!isConnected.get()) {
+				throw new IllegalStateException(rejection());
+			}
 			try {
-				sendQueue.put(msg);
+				if (sendQueue.offer(msg, SEND_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+					return;
+				}
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
 			}
+			throw new IllegalStateException(rejection());
+		}
+		
+		// Why a message does not fit in the send queue
+		String rejection() {
+			return isConnected.get() ? "Send queue full on " + portName : "Port " + portName + " not connected";
 		}
 		
 		/**
@@ -417,18 +726,50 @@ public class SerialCommunication {
 			if (writeThread != null) {
 				writeThread.interrupt();
 			}
-			if (serialPort != null && serialPort.isOpen()) {
-				serialPort.closePort();
+			if (transport != null) {
+				transport.close();
 			}
+			Metrics.DEFAULT.remove("port", portName);
 			
 			System.out.printf("[INFO] Port %s closed.%n", portName);
 		}
 	}
 	
 
+	// Threading for reconnect loops (serial read/write loops always use platform threads)
+	private final ExecutionMode executionMode;
+	
+	public SerialCommunication() {
+		this(ExecutionMode.PLATFORM);
+	}
+	
+	public SerialCommunication(ExecutionMode executionMode) {
+		this.executionMode = executionMode;
+	}
+	
 	// Aggregation of Ports + Subscription
 	private final Map<String, SerialPortManager> portManagers = new ConcurrentHashMap<>();
-	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final Map<Subscriber, Subscription> subscribers = new ConcurrentHashMap<>();
+	// (source port, key) -> subscriptions interested in it; changes hold `subscribers`
+	private final TopicIndex<Subscription> routes = new TopicIndex<>();
+	
+	// Write coalescing policy, read by every write thread before each burst
+	private volatile int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+	private volatile long maxLingerMicros = DEFAULT_MAX_LINGER_MICROS;
+	
+	/**
+	* Configure write coalescing for all ports.
+	* Pending messages are written as one burst of up to maxBatchBytes (a single larger
+	* frame is still written whole). With maxLingerMicros > 0 the writer waits up to that
+	* long after the first message for more to arrive; 0 only takes what is already queued.
+	*/
+	public void setWriteCoalescing(int maxBatchBytes, long maxLingerMicros) {
+		if (maxBatchBytes <= 0 || maxLingerMicros < 0) {
+			throw new IllegalArgumentException("Invalid write coalescing policy");
+		}
+		this.maxBatchBytes = maxBatchBytes;
+		this.maxLingerMicros = maxLingerMicros;
+	}
 	
 	/**
 	* Add a new serial port
@@ -439,7 +780,41 @@ public class SerialCommunication {
 	}
 	
 	/**
-	* Publish a TEXT message
+	* The manager of a port added with addSerialPort, or null (benchmarks).
+	*/
+	SerialPortManager portManager(String portName) {
+		return portManagers.get(portName);
+	}
+	
+	/**
+	* True if a message published to targetPort now is queued without waiting (or
+	* the port does not exist). Exact only when one thread publishes to the port.
+	*/
+	public boolean hasSendCapacity(String targetPort) {
+		SerialPortManager spm = portManagers.get(targetPort);
+		return spm == null || spm.sendQueue.remainingCapacity() > 0;
+	}
+	
+	/**
+	* True if targetPort is open (or does not exist)
+	*/
+	public boolean isConnected(String targetPort) {
+		SerialPortManager spm = portManagers.get(targetPort);
+		return spm == null || spm.isConnected.get();
+	}
+	
+	/**
+	* Why a message published to targetPort now would be rejected without waiting
+	* ("Send queue full on <port>", "Port <port> not connected"), or null if it fits.
+	*/
+	public String sendRejection(String targetPort) {
+		SerialPortManager spm = portManagers.get(targetPort);
+		return (spm == null || spm.sendQueue.remainingCapacity() > 0) ? null : spm.rejection();
+	}
+	
+	/**
+	* Publish a TEXT message. Like publishBinary, waits a bounded time while the
+	* port's send queue is full, then throws IllegalStateException.
 	*/
 	public void publishText(String key, String value, String targetPort) {
 		publish(key, value.getBytes(), MessageType.TEXT, targetPort);
@@ -453,7 +828,8 @@ public class SerialCommunication {
 	}
 	
 	/**
-	* Generic publish
+	* Generic publish. A message the target port cannot take (full queue, or
+	* disconnected with a full queue) throws; on broadcast it is only logged.
 	*/
 	private void publish(String key, byte[] value, MessageType type, String targetPort) {
 		Message msg = new Message(key, value, type, null);
@@ -467,23 +843,92 @@ public class SerialCommunication {
 		} else {
 			// broadcast
 			for (SerialPortManager spm : portManagers.values()) {
-				spm.send(msg);
+				try {
+					spm.send(msg);
+				} catch (IllegalStateException e) {
+					System.err.printf("[ERROR] %s, message dropped.%n", e.getMessage());
+				}
 			}
 		}
 	}
 	
 	/**
-	* Subscribe
+	* Subscribe (called inline on the port's read thread)
 	*/
 	public void subscribe(Subscriber subscriber) {
-		subscribers.add(subscriber);
+		subscribe(subscriber, null, null);
+	}
+	
+	/**
+	* Subscribe to messages from matching ports and keys only (called inline on the
+	* port's read thread). Patterns are exact names, "prefix*" or "*"; null means "*".
+	* Subscribing the same subscriber again replaces its previous filter.
+	*/
+	public void subscribe(Subscriber subscriber, String portPattern, String keyPattern) {
+		route(new Subscription(subscriber), portPattern, keyPattern);
+	}
+	
+	/**
+	* Subscribe with asynchronous delivery: messages are queued (up to queueCapacity)
+	* and handed to the subscriber on `executor`, applying `policy` when the queue is full.
+	*/
+	public void subscribe(Subscriber subscriber, Executor executor, int queueCapacity, OverflowPolicy policy) {
+		subscribe(subscriber, null, null, executor, queueCapacity, policy);
+	}
+	
+	/**
+	* Filtered (see above) subscription with asynchronous delivery.
+	*/
+	public void subscribe(Subscriber subscriber, String portPattern, String keyPattern,
+	Executor executor, int queueCapacity, OverflowPolicy policy) {
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+		}
+		route(new AsyncSubscription(subscriber, executor, queueCapacity, policy), portPattern, keyPattern);
+	}
+	
+	private void route(Subscription subscription, String portPattern, String keyPattern) {
+		String port = (portPattern != null) ? portPattern : TopicIndex.ANY;
+		String key = (keyPattern != null) ? keyPattern : TopicIndex.ANY;
+		TopicIndex.validatePattern(port);
+		TopicIndex.validatePattern(key);
+		synchronized (subscribers) {
+			Subscription previous = subscribers.put(subscription.subscriber, subscription);
+			if (previous != null) {
+				routes.unsubscribeAll(previous);
+				Metrics.DEFAULT.remove("subscriber", previous.id);
+			}
+			routes.subscribe(subscription, port, key);
+		}
+	}
+	
+	/**
+	* Messages dropped by a subscriber's overflow policy so far
+	*/
+	public long getDroppedMessages(Subscriber subscriber) {
+		Subscription subscription = subscribers.get(subscriber);
+		return (subscription != null) ? subscription.getDropped() : 0;
+	}
+	
+	/**
+	* Executor running each task on a virtual thread where the JVM supports them
+	* (Java 21+), otherwise on a cached pool of daemon platform threads.
+	*/
+	public static ExecutorService newVirtualThreadExecutor() {
+		return ExecutionMode.VIRTUAL.newTaskExecutor("SubscriberDispatch");
 	}
 	
 	/**
 	* Unsubscribe
 	*/
 	public void unsubscribe(Subscriber subscriber) {
-		subscribers.remove(subscriber);
+		synchronized (subscribers) {
+			Subscription subscription = subscribers.remove(subscriber);
+			if (subscription != null) {
+				routes.unsubscribeAll(subscription);
+				Metrics.DEFAULT.remove("subscriber", subscription.id);
+			}
+		}
 	}
 	
 	/**
@@ -495,11 +940,11 @@ public class SerialCommunication {
 	}
 	
 	/**
-	* Notify all subscribers
+	* Notify the subscribers whose filter matches the message's port and key
 	*/
 	private void notifySubscribers(Message message) {
-		for (Subscriber sub : subscribers) {
-			sub.onMessage(message);
+		for (Subscription sub : routes.match(message.getSourcePort(), message.getKey())) {
+			sub.deliver(message);
 		}
 	}
 	
@@ -1,40 +1,64 @@
 import com.fazecast.jSerialComm.SerialPort;
+import com.sun.net.httpserver.HttpServer;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
 
 public class SerialServer {
 	private static final long HEARTBEAT_INTERVAL_MS = 2000; // 2 seconds
 	private static final long CLIENT_TIMEOUT_MS = 9000;     // 9 seconds
+	private static final long WHEEL_TICK_MS = 100;
+	private static final int WHEEL_SLOTS = 128;             // 12.8 s per lap, longer than any deadline
+	static final int DEFAULT_DISPATCH_QUEUE_CAPACITY = 4096; // inbound messages buffered for the TCP side
+	static final int CLIENT_QUEUE_CAPACITY = 1024;           // outbound lines buffered per client, either engine
+	static final int READ_BUFFER_SIZE = 8192;
+	static final int MAX_LINE_LENGTH = 64 * 1024;            // hex of a 4 KB BINARY value fits comfortably
+	private static final EncodedLine END_OF_STREAM = EncodedLine.of(""); // writer sentinel, compared by identity
 	
 	private final SerialCommunication serialComm;
-	private final Set<ClientHandler> clientHandlers = ConcurrentHashMap.newKeySet();
+	private final ExecutionMode executionMode;
+	private final Set<ClientConnection> clientHandlers = ConcurrentHashMap.newKeySet();
+	// (port, key) -> clients that want RECEIVED messages for it; also the lock that
+	// keeps a subscription change and unregister() from interleaving
+	private final TopicIndex<ClientConnection> subscriptions = new TopicIndex<>();
+	// Clients that never sent SUBSCRIBE/UNSUBSCRIBE; they hold an implicit "* *"
+	private final Set<ClientConnection> implicitSubscribers = ConcurrentHashMap.newKeySet();
 	private final ScheduledExecutorService heartbeatScheduler = Executors.newScheduledThreadPool(1);
+	// Next heartbeat-or-timeout check per client, advanced by heartbeatScheduler
+	private final TimingWheel<ClientConnection> idleWheel = new TimingWheel<>(WHEEL_SLOTS, WHEEL_TICK_MS, this::checkIdle);
+	// Runs the broadcast subscriber so slow TCP clients never stall the serial read threads
+	private final ExecutorService dispatchExecutor;
+	private volatile SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP;
+	private final LatencyHistogram broadcastTime = Metrics.DEFAULT.histogram("tcp_broadcast_seconds",
+	"Time to fan one serial message out to its subscribed clients");
+	private volatile HttpServer metricsServer;
 	
 	public SerialServer(List<PortConfig> ports) {
-		serialComm = new SerialCommunication();
-		
-		serialComm.subscribe(message -> {
-			StringBuilder sb = new StringBuilder();
-			if (message.getType() == SerialCommunication.MessageType.TEXT) {
-				sb.append("RECEIVED TEXT ")
-				.append(message.getSourcePort()).append(" ")
-				.append(message.getKey()).append(" ")
-				.append(new String(message.getValue()));
-			} else {
-				sb.append("RECEIVED BINARY ")
-				.append(message.getSourcePort()).append(" ")
-				.append(message.getKey()).append(" ");
-				for (byte b : message.getValue()) {
-					sb.append(String.format("%02X", b));
-				}
-			}
-			
-			String outbound = sb.toString();
-			broadcast(outbound);
-		});
+		this(ports, ExecutionMode.PLATFORM);
+	}
+	
+	public SerialServer(List<PortConfig> ports, ExecutionMode executionMode) {
+		this(ports, executionMode, SerialCommunication.OverflowPolicy.DROP_OLDEST, DEFAULT_DISPATCH_QUEUE_CAPACITY);
+	}
+	
+	/**
+	* dispatchOverflow/dispatchQueueCapacity: the queue between the serial read
+	* threads and the TCP fan-out. DROP_OLDEST (default) keeps the read threads
+	* running and loses the oldest messages when clients fall behind by more than
+	* the queue; BLOCK loses nothing but stalls the serial reads instead.
+	*/
+	public SerialServer(List<PortConfig> ports, ExecutionMode executionMode,
+	SerialCommunication.OverflowPolicy dispatchOverflow, int dispatchQueueCapacity) {
+		this.executionMode = executionMode;
+		serialComm = new SerialCommunication(executionMode);
+		dispatchExecutor = executionMode.newTaskExecutor("SerialDispatch");
+		
+		serialComm.subscribe(this::broadcast, dispatchExecutor, dispatchQueueCapacity, dispatchOverflow);
 		
 		for (PortConfig cfg : ports) {
 			System.out.printf("Opening port: %s, baud=%d, dataBits=%d, parity=%d, stopBits=%d%n",
@@ -48,27 +72,45 @@ public class SerialServer {
 			}
 		}
 		
+		Metrics.DEFAULT.gauge("tcp_clients", "Connected TCP clients", clientHandlers::size);
+		
 		// Start heartbeat monitoring
 		startHeartbeatMonitoring();
 	}
 	
+	/**
+	* Export Metrics.DEFAULT for Prometheus on http://127.0.0.1:<port>/metrics
+	*/
+	public void startMetricsServer(int port) throws IOException {
+		metricsServer = Metrics.DEFAULT.serveHttp(port);
+	}
+	
 	private void startHeartbeatMonitoring() {
-		heartbeatScheduler.scheduleAtFixedRate(() -> {
-			long currentTime = System.currentTimeMillis();
-			synchronized (clientHandlers) {
-				Iterator<ClientHandler> iterator = clientHandlers.iterator();
-				while (iterator.hasNext()) {
-					ClientHandler handler = iterator.next();
-					if (currentTime - handler.getLastHeartbeatTime() > CLIENT_TIMEOUT_MS) {
-						System.out.println("Client " + handler.getClientAddress() + " timed out, closing connection");
-						handler.close();
-						iterator.remove();
-					} else {
-						handler.sendHeartbeat();
-					}
-				}
-			}
-		}, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		heartbeatScheduler.scheduleAtFixedRate(() -> idleWheel.advance(System.currentTimeMillis()),
+		WHEEL_TICK_MS, WHEEL_TICK_MS, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	* A client's check is due: close it if it has been silent too long, send a
+	* heartbeat only if nothing else went out for a whole interval (any outbound
+	* line already proves the connection is alive), and return the next check time.
+	*/
+	private long checkIdle(ClientConnection client, long now) {
+		if (!clientHandlers.contains(client)) {
+			return -1; // closed since it was scheduled
+		}
+		long lastInbound = client.getLastHeartbeatTime();
+		if (now - lastInbound > CLIENT_TIMEOUT_MS) {
+			System.out.println("Client " + client.getClientAddress() + " timed out, closing connection");
+			client.close();
+			return -1;
+		}
+		long lastSend = client.getLastSendTime();
+		if (now - lastSend >= HEARTBEAT_INTERVAL_MS) {
+			client.sendHeartbeat();
+			lastSend = now;
+		}
+		return Math.min(lastInbound + CLIENT_TIMEOUT_MS + 1, lastSend + HEARTBEAT_INTERVAL_MS);
 	}
 	
 	public void startServer(int tcpPort) throws IOException {
@@ -78,17 +120,86 @@ public class SerialServer {
 		while (true) {
 			Socket clientSocket = serverSocket.accept();
 			ClientHandler handler = new ClientHandler(clientSocket);
-			clientHandlers.add(handler);
-			handler.start();
+			register(handler);
+			executionMode.newThread("ClientHandler-" + handler.getClientAddress(), handler).start();
+		}
+	}
+	
+	/**
+	* Serve TCP clients from a single selector thread (non-blocking engine)
+	* instead of one thread per client. Blocks like startServer().
+	*/
+	public void startNioServer(int tcpPort) throws IOException {
+		new NioServerEngine(this).run(tcpPort);
+	}
+	
+	void register(ClientConnection client) {
+		clientHandlers.add(client);
+		implicitSubscribers.add(client);
+		subscriptions.subscribe(client, TopicIndex.ANY, TopicIndex.ANY);
+		idleWheel.schedule(client, System.currentTimeMillis() + HEARTBEAT_INTERVAL_MS);
+	}
+	
+	void unregister(ClientConnection client) {
+		synchronized (subscriptions) {
+			clientHandlers.remove(client);
+			implicitSubscribers.remove(client);
+			subscriptions.unsubscribeAll(client);
 		}
+		Metrics.DEFAULT.remove("client", client.getClientAddress());
 	}
 	
-	private void broadcast(String message) {
-		synchronized (clientHandlers) {
-			for (ClientHandler handler : clientHandlers) {
-				handler.send(message);
+	public void setSlowConsumerPolicy(SlowConsumerPolicy policy) {
+		this.slowConsumerPolicy = policy;
+	}
+	
+	/**
+	* Queue msg on a client's bounded outbound queue, applying the slow consumer
+	* policy when it is full. Returns true if msg was queued. Shared by both engines.
+	*/
+	boolean enqueue(ClientConnection client, BlockingQueue<EncodedLine> outbound, EncodedLine msg) {
+		if (outbound.offer(msg)) {
+			client.getMetrics().queued(msg);
+			return true;
+		}
+		switch (slowConsumerPolicy) {
+			case DISCONNECT:
+				System.out.println("Client " + client.getClientAddress() + " is too slow, closing connection");
+				client.close();
+				return false;
+			case COALESCE:
+				while (!outbound.offer(msg)) {
+					if (outbound.poll() != null) {
+						client.getMetrics().dropped.inc();
+					}
+				}
+				client.getMetrics().queued(msg);
+				return true;
+			default: // DROP
+				client.getMetrics().dropped.inc();
+				return false;
+		}
+	}
+	
+	// Only enqueues to the clients subscribed to the message's port and key, so no
+	// socket write happens here. Each form (text line, binary frame) is rendered
+	// once and shared by every client using it.
+	void broadcast(SerialCommunication.Message message) {
+		long start = System.nanoTime();
+		EncodedLine line = null;
+		EncodedLine frame = null;
+		for (ClientConnection handler : subscriptions.match(message.getSourcePort(), message.getKey())) {
+			synchronized (handler) {
+				if (handler.isBinaryProtocol()) {
+					if (frame == null) frame = EncodedLine.receivedFrame(message);
+					handler.send(frame);
+				} else {
+					if (line == null) line = EncodedLine.received(message);
+					handler.send(line);
+				}
 			}
 		}
+		broadcastTime.record(System.nanoTime() - start);
 	}
 	
 	public void shutdown() {
@@ -101,8 +212,12 @@ public class SerialServer {
 		}
 		
 		serialComm.close();
+		dispatchExecutor.shutdown();
+		if (metricsServer != null) {
+			metricsServer.stop(0);
+		}
 		
-		for (ClientHandler handler : clientHandlers) {
+		for (ClientConnection handler : clientHandlers) {
 			handler.close();
 		}
 		clientHandlers.clear();
@@ -124,18 +239,560 @@ public class SerialServer {
 		}
 	}
 	
-	private class ClientHandler extends Thread {
+	/**
+	* One connected TCP client, whatever engine serves it.
+	*
+	* Whether a reply goes out as a text line or a binary frame depends on the
+	* negotiated protocol, so mode-dependent sends and the protocol switch hold
+	* the connection's monitor.
+	*/
+	interface ClientConnection {
+		String getClientAddress();
+		long getLastHeartbeatTime(); // last inbound traffic
+		void updateHeartbeat();
+		long getLastSendTime();      // last outbound line or frame queued
+		boolean isBinaryProtocol();
+		void setBinaryProtocol();
+		void send(EncodedLine line);
+		void close();
+		int getQueueDepth();         // outbound lines or frames not yet written
+		ClientMetrics getMetrics();
+		
+		default void send(String msg) {
+			synchronized (this) {
+				send(isBinaryProtocol() ? EncodedLine.control(msg) : EncodedLine.of(msg));
+			}
+		}
+		
+		default void sendHeartbeat() {
+			synchronized (this) {
+				send(isBinaryProtocol() ? EncodedLine.HEARTBEAT_FRAME : EncodedLine.HEARTBEAT);
+			}
+		}
+	}
+	
+	/**
+	* Per-client series (label client=<address>), dropped when the client unregisters.
+	* Send lag is the age of the oldest output not yet written to the socket.
+	*/
+	static final class ClientMetrics {
+		final Metrics.Counter commandsIn, bytesIn, linesOut, bytesOut, dropped;
+		private volatile long pendingSinceNanos; // 0: everything written
+		
+		ClientMetrics(ClientConnection client) {
+			String address = client.getClientAddress();
+			Metrics metrics = Metrics.DEFAULT;
+			commandsIn = metrics.counter("tcp_client_commands_total", "Command lines and frames received", "client", address);
+			bytesIn = metrics.counter("tcp_client_bytes_in_total", "Bytes received from the client", "client", address);
+			linesOut = metrics.counter("tcp_client_lines_out_total", "Lines and frames queued for the client", "client", address);
+			bytesOut = metrics.counter("tcp_client_bytes_out_total", "Bytes queued for the client", "client", address);
+			dropped = metrics.counter("tcp_client_dropped_total", "Output discarded by the slow consumer policy", "client", address);
+			metrics.gauge("tcp_client_queue_depth", "Lines and frames waiting to be written", client::getQueueDepth,
+			"client", address);
+			metrics.gauge("tcp_client_send_lag_seconds", "Age of the oldest output not yet written",
+			this::sendLagSeconds, "client", address);
+		}
+		
+		void queued(EncodedLine line) {
+			linesOut.inc();
+			bytesOut.add(line.length());
+			if (pendingSinceNanos == 0) {
+				pendingSinceNanos = System.nanoTime();
+			}
+		}
+		
+		// Writer: all queued output is on the socket (or none is left to wait for)
+		void drained() {
+			pendingSinceNanos = 0;
+		}
+		
+		double sendLagSeconds() {
+			long since = pendingSinceNanos;
+			return (since == 0) ? 0 : (System.nanoTime() - since) / 1e9;
+		}
+	}
+	
+	/**
+	* Inbound bytes of one client: command lines, then BinaryTcpProtocol frames
+	* once the client has switched protocols. Shared by both engines.
+	*
+	* Publishing waits a bounded time while the target port's send queue is full,
+	* which pauses a thread-per-client reader; a command still not queued then
+	* (or at once, if the port is disconnected) gets an ERROR reply. An engine whose
+	* thread must not block creates its input with pauseWhenFull: such a command is
+	* held back instead (isPaused()) and the engine stops reading until resume()
+	* gets it through, or replies the same ERROR once the hold reaches the send
+	* timeout. A paused client counts as alive, since its heartbeats go unread.
+	*/
+	final class ClientInput implements BinaryTcpProtocol.FrameHandler {
+		private final ClientConnection client;
+		private final boolean pauseWhenFull;
+		private final BinaryTcpProtocol.Decoder frames = new BinaryTcpProtocol.Decoder();
+		private byte[] line = new byte[256];
+		private int lineLength;
+		private BooleanSupplier heldCommand; // waiting for room in heldPort's send queue
+		private String heldPort;
+		private long heldSince;
+		
+		ClientInput(ClientConnection client) {
+			this(client, false);
+		}
+		
+		ClientInput(ClientConnection client, boolean pauseWhenFull) {
+			this.client = client;
+			this.pauseWhenFull = pauseWhenFull;
+		}
+		
+		/**
+		* Consume buf, up to a held-back command if any. Returns false if the
+		* connection should close.
+		*/
+		boolean feed(ByteBuffer buf) {
+			client.updateHeartbeat(); // any inbound traffic counts as liveness
+			int start = buf.position();
+			try {
+				return consume(buf);
+			} finally {
+				client.getMetrics().bytesIn.add(buf.position() - start);
+			}
+		}
+		
+		boolean isPaused() {
+			return heldCommand != null;
+		}
+		
+		/**
+		* Run the held-back command if its port has room now, or drop it with an
+		* ERROR reply once the port is gone or the send timeout has passed. Returns
+		* false if the connection should close; isPaused() tells whether it is still waiting.
+		*/
+		boolean resume() {
+			if (heldCommand == null) {
+				return true;
+			}
+			String rejection = serialComm.sendRejection(heldPort);
+			BooleanSupplier command = heldCommand;
+			if (rejection != null) {
+				if (serialComm.isConnected(heldPort)
+				&& System.currentTimeMillis() - heldSince < SerialCommunication.SEND_TIMEOUT_MS) {
+					client.updateHeartbeat(); // still paced, not silent
+					return true;
+				}
+				command = () -> {
+					client.send("ERROR: " + rejection);
+					return true;
+				};
+			}
+			heldCommand = null;
+			heldPort = null;
+			return command.getAsBoolean();
+		}
+		
+		private boolean consume(ByteBuffer buf) {
+			while (buf.hasRemaining() && heldCommand == null) {
+				if (client.isBinaryProtocol()) {
+					try {
+						return frames.feed(buf, this) || heldCommand != null;
+					} catch (ProtocolException e) {
+						client.send("ERROR: " + e.getMessage());
+						return false;
+					}
+				}
+				byte b = buf.get();
+				if (b == '\n') {
+					int end = (lineLength > 0 && line[lineLength - 1] == '\r') ? lineLength - 1 : lineLength;
+					String text = new String(line, 0, end, StandardCharsets.UTF_8);
+					lineLength = 0;
+					client.getMetrics().commandsIn.inc();
+					if (hold(publishTarget(text), () -> handleLine(client, text))) {
+						return true;
+					}
+					if (!handleLine(client, text)) {
+						return false;
+					}
+				} else {
+					if (lineLength == MAX_LINE_LENGTH) {
+						client.send("ERROR: Line too long");
+						return false;
+					}
+					if (lineLength == line.length) {
+						line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+					}
+					line[lineLength++] = b;
+				}
+			}
+			return true;
+		}
+		
+		@Override
+		public boolean onFrame(String port, String key, byte[] value, byte type) {
+			client.getMetrics().commandsIn.inc();
+			String target = (type == BinaryTcpProtocol.TYPE_CONTROL)
+			? publishTarget(new String(value, StandardCharsets.UTF_8)) : port;
+			if (hold(target, () -> handleFrame(client, port, key, value, type))) {
+				return false; // stop the decoder right after this frame
+			}
+			return handleFrame(client, port, key, value, type);
+		}
+		
+		// Keep the command for resume() if it would wait on a full send queue. With the
+		// port disconnected nothing frees room, so it runs now and gets its ERROR.
+		private boolean hold(String targetPort, BooleanSupplier command) {
+			if (!pauseWhenFull || targetPort == null || serialComm.hasSendCapacity(targetPort)
+			|| !serialComm.isConnected(targetPort)) {
+				return false;
+			}
+			heldCommand = command;
+			heldPort = targetPort;
+			heldSince = System.currentTimeMillis();
+			return true;
+		}
+	}
+	
+	/**
+	* The serial port a TEXT / BINARY / CSV command line publishes to, or null.
+	*/
+	private static String publishTarget(String line) {
+		String[] tokens = line.trim().split(" ", 3);
+		if (tokens.length < 3) {
+			return null;
+		}
+		String command = tokens[0].toUpperCase();
+		return (command.equals("TEXT") || command.equals("BINARY") || command.equals("CSV")) ? tokens[1] : null;
+	}
+	
+	/**
+	* An immutable, already encoded unit of output: a UTF-8 text line (newline
+	* included) or a binary protocol frame. One instance is shared by every client
+	* it is sent to; engines write the bytes directly (streams) or through a
+	* read-only duplicate (NIO).
+	*/
+	static final class EncodedLine {
+		static final EncodedLine HEARTBEAT = of("HEARTBEAT");
+		static final EncodedLine HEARTBEAT_FRAME = control("HEARTBEAT");
+		
+		private static final byte[] RECEIVED_TEXT = "RECEIVED TEXT ".getBytes(StandardCharsets.US_ASCII);
+		private static final byte[] RECEIVED_BINARY = "RECEIVED BINARY ".getBytes(StandardCharsets.US_ASCII);
+		
+		private final byte[] bytes;
+		private final ByteBuffer view;
+		
+		private EncodedLine(byte[] bytes) {
+			this.bytes = bytes;
+			this.view = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+		}
+		
+		static EncodedLine of(String line) {
+			return new EncodedLine((line + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		
+		/**
+		* A text-protocol line as a binary CONTROL frame
+		*/
+		static EncodedLine control(String line) {
+			return new EncodedLine(BinaryTcpProtocol.encodeControl(line));
+		}
+		
+		/**
+		* Several lines as one unit of output: newline-terminated text, or one
+		* CONTROL frame per line on the binary protocol.
+		*/
+		static EncodedLine lines(List<String> lines, boolean binaryProtocol) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(lines.size() * 64);
+			for (String line : lines) {
+				byte[] bytes = binaryProtocol ? BinaryTcpProtocol.encodeControl(line)
+				: (line + "\n").getBytes(StandardCharsets.UTF_8);
+				out.write(bytes, 0, bytes.length);
+			}
+			return new EncodedLine(out.toByteArray());
+		}
+		
+		static EncodedLine receivedFrame(SerialCommunication.Message message) {
+			byte type = message.getType() == SerialCommunication.MessageType.TEXT
+			? BinaryTcpProtocol.TYPE_TEXT : BinaryTcpProtocol.TYPE_BINARY;
+			return new EncodedLine(BinaryTcpProtocol.encode(message.getSourcePort(), message.getKey(),
+			message.getValue(), type));
+		}
+		
+		/**
+		* "RECEIVED TEXT <port> <key> <value>" or "RECEIVED BINARY <port> <key> <hex>",
+		* written straight into one byte array.
+		*/
+		static EncodedLine received(SerialCommunication.Message message) {
+			byte[] port = message.getSourcePort().getBytes(StandardCharsets.UTF_8);
+			byte[] key = message.getKey().getBytes(StandardCharsets.UTF_8);
+			byte[] value = message.getValue();
+			boolean text = message.getType() == SerialCommunication.MessageType.TEXT;
+			byte[] prefix = text ? RECEIVED_TEXT : RECEIVED_BINARY;
+			int valueLength = text ? value.length : value.length * 2;
+			
+			byte[] line = new byte[prefix.length + port.length + 1 + key.length + 1 + valueLength + 1];
+			int pos = 0;
+			System.arraycopy(prefix, 0, line, pos, prefix.length);
+			pos += prefix.length;
+			System.arraycopy(port, 0, line, pos, port.length);
+			pos += port.length;
+			line[pos++] = ' ';
+			System.arraycopy(key, 0, line, pos, key.length);
+			pos += key.length;
+			line[pos++] = ' ';
+			if (text) {
+				System.arraycopy(value, 0, line, pos, value.length);
+				pos += value.length;
+			} else {
+				pos = HexCodec.encode(value, 0, value.length, line, pos);
+			}
+			line[pos] = '\n';
+			return new EncodedLine(line);
+		}
+		
+		/**
+		* Independent read-only cursor over the shared bytes (no copy)
+		*/
+		ByteBuffer buffer() {
+			return view.duplicate();
+		}
+		
+		void writeTo(OutputStream out) throws IOException {
+			out.write(bytes);
+		}
+		
+		int length() {
+			return bytes.length;
+		}
+	}
+	
+	static final String WELCOME_MESSAGE = "Welcome to NAMO Serial Server!";
+	
+	/**
+	* Handle one command line from a client. Returns false if the client asked to quit.
+	*/
+	boolean handleLine(ClientConnection client, String line) {
+		// Handle heartbeat response
+		if ("HEARTBEAT".equals(line.trim())) {
+			client.updateHeartbeat();
+			return true;
+		}
+		
+		line = line.trim();
+		if (line.equalsIgnoreCase("QUIT")) {
+			client.send("Goodbye!");
+			return false;
+		}
+		
+		if (line.equalsIgnoreCase(BinaryTcpProtocol.NEGOTIATION)) {
+			synchronized (client) {
+				// The answer is the last text line; everything after it is framed
+				if (!client.isBinaryProtocol()) {
+					client.send(EncodedLine.of(BinaryTcpProtocol.NEGOTIATION));
+					client.setBinaryProtocol();
+				}
+			}
+			return true;
+		}
+		
+		if (line.equalsIgnoreCase("STATS")) {
+			sendStats(client);
+			return true;
+		}
+		
+		String[] words = line.split("\\s+");
+		String command = words[0].toUpperCase();
+		if (command.equals("SUBSCRIBE") || command.equals("UNSUBSCRIBE") || command.equals("SUBSCRIPTIONS")) {
+			handleSubscription(client, command, words);
+			return true;
+		}
+		
+		String[] tokens = line.split(" ", 4);
+		if (tokens.length < 4) {
+			client.send("ERROR: Invalid command format. Expected 4 tokens minimum.");
+			return true;
+		}
+		
+		String cmdType = tokens[0].toUpperCase();
+		String targetPort = tokens[1];
+		String key = tokens[2];
+		String value = tokens[3];
+		
+		try {
+			switch (cmdType) {
+				case "TEXT":
+				publishText(client, targetPort, key, value);
+				break;
+				
+				case "BINARY":
+				publishBinary(client, targetPort, key, HexCodec.decode(value));
+				break;
+
+				case "CSV":
+					String[] CSV_part = value.split(",");
+					if (CSV_part.length >= 2) {
+						int togglecount = Integer.parseInt(CSV_part[0].trim());
+						int multidelay = Integer.parseInt(CSV_part[1].trim());
+						byte[] data = new byte[]{(byte) togglecount, (byte) multidelay};
+						data[0] = (byte) togglecount;
+						data[1] = (byte) multidelay;
+						serialComm.publishBinary("LED_TOGGLE", data, targetPort);
+						client.send(String.format("Sent CSV-converted BINARY to %s (LED_TOGGLE, %d toggles, delay multiplier %d)",
+								targetPort, togglecount, multidelay));
+					}
+					else {
+					client.send("ERROR: CSV format invalid. Expected format: toggleCount,delayMultiplier");
+					}
+				break;
+				
+				default:
+				client.send("ERROR: Unrecognized command. Use TEXT, BINARY, or CSV file.");
+				break;
+			}
+		} catch (Exception e) {
+			client.send("ERROR: " + e.getMessage());
+		}
+		return true;
+	}
+	
+	/**
+	* STATS: one "STATS <metric>{<labels>} <value>" line per sample (Prometheus
+	* sample syntax), then "STATS END". The reply grows with the number of
+	* clients, so it is queued as one unit: a full queue drops all of it, never
+	* just its tail.
+	*/
+	private void sendStats(ClientConnection client) {
+		StringBuilder samples = new StringBuilder(4096);
+		Metrics.DEFAULT.writeSamples(samples);
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		for (int end; (end = samples.indexOf("\n", start)) >= 0; start = end + 1) {
+			lines.add("STATS " + samples.substring(start, end));
+		}
+		lines.add("STATS END");
+		synchronized (client) {
+			client.send(EncodedLine.lines(lines, client.isBinaryProtocol()));
+		}
+	}
+	
+	/**
+	* SUBSCRIBE <port> [<key>], UNSUBSCRIBE <port> [<key>], SUBSCRIPTIONS.
+	* Patterns are "*", "prefix*" or exact names; the key defaults to "*".
+	* A client starts with an implicit "* *" (everything) that its first
+	* SUBSCRIBE replaces; "UNSUBSCRIBE *" then stops all RECEIVED messages.
+	*/
+	private void handleSubscription(ClientConnection client, String command, String[] words) {
+		if (command.equals("SUBSCRIPTIONS")) {
+			List<String> topics = subscriptions.subscriptionsOf(client);
+			client.send("SUBSCRIPTIONS " + (topics.isEmpty() ? "(none)" : String.join(", ", topics)));
+			return;
+		}
+		if (words.length < 2 || words.length > 3) {
+			client.send("ERROR: Expected " + command + " <port> [<key>]");
+			return;
+		}
+		String port = words[1];
+		String key = words.length == 3 ? words[2] : TopicIndex.ANY;
+		try {
+			TopicIndex.validatePattern(port);
+			TopicIndex.validatePattern(key);
+		} catch (IllegalArgumentException e) {
+			client.send("ERROR: " + e.getMessage());
+			return;
+		}
+		
+		if (command.equals("SUBSCRIBE")) {
+			synchronized (subscriptions) {
+				if (!clientHandlers.contains(client)) {
+					return; // closed meanwhile; do not index it again
+				}
+				if (implicitSubscribers.remove(client)) {
+					subscriptions.unsubscribe(client, TopicIndex.ANY, TopicIndex.ANY);
+				}
+				subscriptions.subscribe(client, port, key);
+			}
+			client.send("Subscribed to " + port + " " + key);
+		} else {
+			boolean implicitAll = port.equals(TopicIndex.ANY) && key.equals(TopicIndex.ANY)
+			&& implicitSubscribers.remove(client);
+			if (subscriptions.unsubscribe(client, port, key) || implicitAll) {
+				client.send("Unsubscribed from " + port + " " + key);
+			} else {
+				client.send("ERROR: Not subscribed to " + port + " " + key);
+			}
+		}
+	}
+	
+	/**
+	* Handle one frame from a binary protocol client. Returns false if the client asked to quit.
+	*/
+	boolean handleFrame(ClientConnection client, String port, String key, byte[] value, byte type) {
+		try {
+			switch (type) {
+				case BinaryTcpProtocol.TYPE_CONTROL:
+				return handleLine(client, new String(value, StandardCharsets.UTF_8));
+				
+				case BinaryTcpProtocol.TYPE_TEXT:
+				publishText(client, port, key, new String(value, StandardCharsets.UTF_8));
+				break;
+				
+				case BinaryTcpProtocol.TYPE_BINARY:
+				publishBinary(client, port, key, value);
+				break;
+				
+				default:
+				client.send("ERROR: Unrecognized frame type " + type);
+				break;
+			}
+		} catch (Exception e) {
+			client.send("ERROR: " + e.getMessage());
+		}
+		return true;
+	}
+	
+	private void publishText(ClientConnection client, String targetPort, String key, String value) {
+		serialComm.publishText(key, value, targetPort);
+		client.send(String.format("Sent TEXT to %s (key=%s, value=%s)", targetPort, key, value));
+	}
+	
+	private void publishBinary(ClientConnection client, String targetPort, String key, byte[] data) {
+		serialComm.publishBinary(key, data, targetPort);
+		client.send(String.format("Sent BINARY to %s (key=%s, %d bytes)", targetPort, key, data.length));
+	}
+	
+	/**
+	* What a client connection (either engine) does when its outbound queue is full
+	*/
+	public enum SlowConsumerPolicy {
+		DISCONNECT, // close the client
+		DROP,       // discard the new message
+		COALESCE    // discard the oldest queued messages, keeping the most recent ones
+	}
+	
+	private class ClientHandler implements Runnable, ClientConnection {
 		private final Socket socket;
-		private PrintWriter out;
-		private BufferedReader in;
-		private boolean active = true;
+		private OutputStream out;
+		private InputStream in;
+		private volatile boolean active = true;
+		private volatile boolean binaryProtocol;
 		private volatile long lastHeartbeatTime;
+		private volatile long lastSendTime;
 		private final String clientAddress;
+		// Drained by this client's own writer thread; senders never touch the socket
+		private final BlockingQueue<EncodedLine> outbound = new ArrayBlockingQueue<>(CLIENT_QUEUE_CAPACITY);
+		private final ClientMetrics metrics;
+		private Thread writerThread;
+		private Thread readerThread;
 		
 		public ClientHandler(Socket socket) {
 			this.socket = socket;
 			this.lastHeartbeatTime = System.currentTimeMillis();
 			this.clientAddress = socket.getRemoteSocketAddress().toString();
+			this.metrics = new ClientMetrics(this);
+		}
+		
+		public int getQueueDepth() {
+			return outbound.size();
+		}
+		
+		public ClientMetrics getMetrics() {
+			return metrics;
 		}
 		
 		public String getClientAddress() {
@@ -150,125 +807,143 @@ public class SerialServer {
 			this.lastHeartbeatTime = System.currentTimeMillis();
 		}
 		
-		public void sendHeartbeat() {
-			send("HEARTBEAT");
+		public long getLastSendTime() {
+			return lastSendTime;
+		}
+		
+		public boolean isBinaryProtocol() {
+			return binaryProtocol;
+		}
+		
+		public void setBinaryProtocol() {
+			binaryProtocol = true;
 		}
 		
 		@Override
 		public void run() {
+			readerThread = Thread.currentThread();
 			try {
-				out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
-				in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+				out = new BufferedOutputStream(socket.getOutputStream());
+				in = socket.getInputStream();
 				
-				out.println("Welcome to NAMO Serial Server!");
+				writerThread = executionMode.newThread("ClientWriter-" + clientAddress, this::writeLoop);
+				writerThread.start();
 				
-				String line;
-				while (active && (line = in.readLine()) != null) {
-					// Handle heartbeat response
-					if ("HEARTBEAT".equals(line.trim())) {
-						updateHeartbeat();
-						continue;
-					}
-					
-					line = line.trim();
-					if (line.equalsIgnoreCase("QUIT")) {
-						out.println("Goodbye!");
+				send(WELCOME_MESSAGE);
+				
+				ClientInput input = new ClientInput(this);
+				byte[] buf = new byte[READ_BUFFER_SIZE];
+				int n;
+				while (active && (n = in.read(buf)) >= 0) {
+					if (!input.feed(ByteBuffer.wrap(buf, 0, n))) {
 						break;
 					}
-					
-					String[] tokens = line.split(" ", 4);
-					if (tokens.length < 4) {
-						out.println("ERROR: Invalid command format. Expected 4 tokens minimum.");
-						continue;
-					}
-					
-					String cmdType = tokens[0].toUpperCase();
-					String targetPort = tokens[1];
-					String key = tokens[2];
-					String value = tokens[3];
-					
-					try {
-						switch (cmdType) {
-							case "TEXT":
-							serialComm.publishText(key, value, targetPort);
-							out.printf("Sent TEXT to %s (key=%s, value=%s)\n", targetPort, key, value);
-							break;
-							
-							case "BINARY":
-							byte[] data = hexStringToByteArray(value);
-							serialComm.publishBinary(key, data, targetPort);
-							out.printf("Sent BINARY to %s (key=%s, %d bytes)\n",
-							targetPort, key, data.length);
-							break;
-
-							case "CSV":
-								String[] CSV_part = value.split(",");
-								if (CSV_part.length >= 2) {
-									int togglecount = Integer.parseInt(CSV_part[0].trim());
-									int multidelay = Integer.parseInt(CSV_part[1].trim());
-									data = new byte[]{(byte) togglecount, (byte) multidelay};
-									data[0] = (byte) togglecount;
-									data[1] = (byte) multidelay;
-									serialComm.publishBinary("LED_TOGGLE", data, targetPort);
-									out.printf("Sent CSV-converted BINARY to %s (LED_TOGGLE, %d toggles, delay multiplier %d)\n",
-											targetPort, togglecount, multidelay);
-								}
-								else {
-								out.println("ERROR: CSV format invalid. Expected format: toggleCount,delayMultiplier");
-								}
-							break;
-							
-							default:
-							out.println("ERROR: Unrecognized command. Use TEXT, BINARY, or CSV file.");
-							break;
-						}
-					} catch (Exception e) {
-						out.println("ERROR: " + e.getMessage());
-					}
 				}
 				
 			} catch (IOException e) {
 				System.err.println("ClientHandler encountered an error: " + e.getMessage());
 			} finally {
+				// Let "Goodbye!" and other queued replies out; the writer closes after them
+				if (!outbound.offer(END_OF_STREAM)) {
+					close();
+				}
+			}
+		}
+		
+		// Writer thread: write everything queued, flush once per batch
+		private void writeLoop() {
+			try {
+				while (active) {
+					EncodedLine msg = outbound.take();
+					do {
+						if (msg == END_OF_STREAM) {
+							out.flush();
+							close();
+							return;
+						}
+						msg.writeTo(out);
+					} while ((msg = outbound.poll()) != null);
+					out.flush();
+					metrics.drained();
+				}
+			} catch (InterruptedException e) {
+				// closing
+			} catch (IOException e) {
 				close();
 			}
 		}
 		
-		public void send(String msg) {
-			if (out != null && active) {
-				out.println(msg);
+		/**
+		* Queue a line for this client; never blocks on the socket.
+		*/
+		public void send(EncodedLine msg) {
+			if (!active) {
+				return;
+			}
+			if (enqueue(this, outbound, msg)) {
+				lastSendTime = System.currentTimeMillis();
 			}
 		}
 		
+		/**
+		* Called from the broadcast and timing-wheel threads too, so it must not
+		* block: closing the socket fails a writer stuck on a peer that stopped
+		* reading, and the buffered stream is never flushed (its lock may be held
+		* by that writer). Unwritten output is discarded.
+		*/
 		public void close() {
 			active = false;
 			try {
-				if (out != null) out.close();
-				if (in != null) in.close();
-				if (socket != null && !socket.isClosed()) socket.close();
+				if (!socket.isClosed()) socket.close(); // also releases in and out
 			} catch (IOException ignored) {
 			}
-			clientHandlers.remove(this);
+			if (writerThread != null) writerThread.interrupt();
+			if (readerThread != null) readerThread.interrupt(); // may be waiting on a full serial queue
+			unregister(this);
 		}
 	}
 	
-	private static byte[] hexStringToByteArray(String hex) {
-		hex = hex.replaceAll("\\s+", "");
-		if (hex.length() % 2 != 0) {
-			throw new IllegalArgumentException("Hex string must have an even number of characters");
-		}
-		int len = hex.length() / 2;
-		byte[] data = new byte[len];
-		for (int i = 0; i < len; i++) {
-			data[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
-		}
-		return data;
-	}
-	
 	public static void main(String[] args) {
+		boolean nio = false;
+		ExecutionMode executionMode = ExecutionMode.PLATFORM;
+		SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP;
+		SerialCommunication.OverflowPolicy dispatchOverflow = SerialCommunication.OverflowPolicy.DROP_OLDEST;
+		int dispatchQueueCapacity = DEFAULT_DISPATCH_QUEUE_CAPACITY;
+		int metricsPort = -1;
+		int first = 0;
+		while (first < args.length && args[first].startsWith("--")) {
+			String option = args[first++];
+			if (option.equals("--nio")) {
+				nio = true;
+			} else if (option.startsWith("--threads=")) {
+				executionMode = ExecutionMode.parse(option.substring("--threads=".length()));
+			} else if (option.startsWith("--metrics=")) {
+				metricsPort = Integer.parseInt(option.substring("--metrics=".length()));
+			} else if (option.startsWith("--slow-client=")) {
+				slowConsumerPolicy = SlowConsumerPolicy.valueOf(option.substring("--slow-client=".length()).toUpperCase());
+			} else if (option.startsWith("--dispatch-overflow=")) {
+				dispatchOverflow = SerialCommunication.OverflowPolicy.valueOf(
+				option.substring("--dispatch-overflow=".length()).toUpperCase().replace('-', '_'));
+			} else if (option.startsWith("--dispatch-queue=")) {
+				dispatchQueueCapacity = Integer.parseInt(option.substring("--dispatch-queue=".length()));
+			} else {
+				throw new IllegalArgumentException("Unknown option: " + option);
+			}
+		}
+		args = Arrays.copyOfRange(args, first, args.length);
+		
 		if (args.length < 2) {
-			System.out.println("Usage: java SerialServer <tcpPort> <port> <baud> <config> [<port> <baud> <config> ...]");
+			System.out.println("Usage: java SerialServer [--nio] [--threads=platform|virtual] [--slow-client=drop|disconnect|coalesce] [--dispatch-overflow=drop-oldest|drop-newest|block] [--dispatch-queue=<messages>] [--metrics=<httpPort>] <tcpPort> <port> <baud> <config> [<port> <baud> <config> ...]");
 			System.out.println(" Example: java SerialServer 9000 COM1 9600 8N1 COM2 115200 8N1");
+			System.out.println(" <port>: a device, loop://<name>, pty://<path>, or emu://<name>[?timeline] (emulated board;");
+			System.out.println("         ?timeline prints its LED changes)");
+			System.out.println(" --nio: serve all TCP clients from one selector thread instead of a thread per client");
+			System.out.println(" --threads=virtual: run client handlers, reconnect loops and dispatch on virtual threads (Java 21+)");
+			System.out.println(" --slow-client: what to do when a client's outbound queue is full (default drop)");
+			System.out.println(" --dispatch-overflow: what to do when serial input outruns the TCP fan-out queue (default drop-oldest;");
+			System.out.println("         block loses nothing but stalls the serial reads); --dispatch-queue: its size (default "
+			+ DEFAULT_DISPATCH_QUEUE_CAPACITY + ")");
+			System.out.println(" --metrics=9100: Prometheus metrics on http://127.0.0.1:9100/metrics (the STATS command works regardless)");
 			System.exit(0);
 		}
 		
@@ -315,10 +990,18 @@ public class SerialServer {
 			portConfigs.add(new PortConfig(portName, baud, dataBits, parity, stopBits));
 		}
 		
-		SerialServer server = new SerialServer(portConfigs);
+		SerialServer server = new SerialServer(portConfigs, executionMode, dispatchOverflow, dispatchQueueCapacity);
+		server.setSlowConsumerPolicy(slowConsumerPolicy);
 		
 		try {
-			server.startServer(tcpPort);
+			if (metricsPort >= 0) {
+				server.startMetricsServer(metricsPort);
+			}
+			if (nio) {
+				server.startNioServer(tcpPort);
+			} else {
+				server.startServer(tcpPort);
+			}
 		} catch (IOException e) {
 			System.err.println("Failed to start server: " + e.getMessage());
 			server.shutdown();
@@ -1,8 +1,19 @@
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.Scanner;
 
@@ -10,15 +21,23 @@ public class SerialTcpClient {
 	private final ClientConfig config;
 	private final BlockingQueue<Message> messageQueue;
 	private final List<Consumer<String>> messageListeners;
-	private static final AtomicBoolean isRunning = new AtomicBoolean(true);
-	private static volatile Socket currentSocket;
+	private final List<BiConsumer<String, String>> decodedTextListeners;
+	private final MorseWordCache wordCache;
+	private final Map<String, WordCollector> morseCollectors = new HashMap<>(); // response thread only
+	private final AtomicBoolean isRunning = new AtomicBoolean(true); // per client, so one JVM can run many
+	private volatile Socket currentSocket;
+	private final Object drained = new Object(); // notified by the sender when messageQueue runs empty
+	// SUBSCRIBE lines in effect, replayed on every (re)connect since the server forgets them
+	private final Set<String> subscriptions = Collections.synchronizedSet(new LinkedHashSet<>());
+	private volatile boolean filtered; // subscribe() or unsubscribe() was used
 	private volatile long lastHeartbeatResponse;
 	
 	public static class Message {
-		private final String type;        // "TEXT" or "BINARY"
+		private final String type;        // "TEXT", "BINARY" or "CSV"
 		private final String targetPort;  // Serial port name
 		private final String key;         // Message key
 		private final String value;       // Message value or hex string for binary
+		private String formatted;         // wire line, built on first use
 		
 		public Message(String type, String targetPort, String key, String value) {
 			this.type = type.toUpperCase();
@@ -26,13 +45,25 @@ public class SerialTcpClient {
 			this.key = key;
 			this.value = value;
 			
-			if (!type.equalsIgnoreCase("TEXT") && !type.equalsIgnoreCase("BINARY")) {
-				throw new IllegalArgumentException("Type must be TEXT or BINARY");
+			if (!type.equalsIgnoreCase("TEXT") && !type.equalsIgnoreCase("BINARY") && !type.equalsIgnoreCase("CSV")) {
+				throw new IllegalArgumentException("Type must be TEXT, BINARY or CSV");
 			}
 		}
 		
+		// A server command line (SUBSCRIBE, UNSUBSCRIBE, ...), sent as is
+		private Message(String commandLine) {
+			this.type = null;
+			this.targetPort = null;
+			this.key = null;
+			this.value = null;
+			this.formatted = commandLine;
+		}
+		
 		public String format() {
-			return String.format("%s %s %s %s", type, targetPort, key, value);
+			if (formatted == null) {
+				formatted = type + " " + targetPort + " " + key + " " + value;
+			}
+			return formatted;
 		}
 	}
 	
@@ -45,6 +76,10 @@ public class SerialTcpClient {
 		private final int heartbeatInterval;
 		private final String heartbeatMessage;
 		private final boolean keepAlive;
+		private final int morseUnitMs;
+		private final int sendQueueCapacity;
+		private final int wordCacheSize;
+		private final boolean verbose;
 		
 		private ClientConfig(Builder builder) {
 			this.initialReconnectDelay = builder.initialReconnectDelay;
@@ -55,6 +90,10 @@ public class SerialTcpClient {
 			this.heartbeatInterval = builder.heartbeatInterval;
 			this.heartbeatMessage = builder.heartbeatMessage;
 			this.keepAlive = builder.keepAlive;
+			this.morseUnitMs = builder.morseUnitMs;
+			this.sendQueueCapacity = builder.sendQueueCapacity;
+			this.wordCacheSize = builder.wordCacheSize;
+			this.verbose = builder.verbose;
 		}
 		
 		public static class Builder {
@@ -66,6 +105,10 @@ public class SerialTcpClient {
 			private int heartbeatInterval = 1200; // 15 seconds
 			private String heartbeatMessage = "HEARTBEAT";
 			private boolean keepAlive = true;
+			private int morseUnitMs = 100; // 12 WPM
+			private int sendQueueCapacity = 256; // senders block when full
+			private int wordCacheSize = 1024; // encoded words kept by sendMorse
+			private boolean verbose = true; // print every sent line and server reply
 			
 			// Builder methods remain the same
 			public Builder initialReconnectDelay(int delay) {
@@ -108,6 +151,31 @@ public class SerialTcpClient {
 				return this;
 			}
 			
+			public Builder morseUnitMs(int unitMs) {
+				this.morseUnitMs = unitMs;
+				return this;
+			}
+			
+			public Builder wpm(int wpm) {
+				this.morseUnitMs = MorseScheduler.unitMillis(wpm);
+				return this;
+			}
+			
+			public Builder sendQueueCapacity(int capacity) {
+				this.sendQueueCapacity = capacity;
+				return this;
+			}
+			
+			public Builder wordCacheSize(int size) {
+				this.wordCacheSize = size;
+				return this;
+			}
+			
+			public Builder verbose(boolean verbose) {
+				this.verbose = verbose;
+				return this;
+			}
+			
 			public ClientConfig build() {
 				return new ClientConfig(this);
 			}
@@ -116,8 +184,10 @@ public class SerialTcpClient {
 	
 	public SerialTcpClient(ClientConfig config) {
 		this.config = config;
-		this.messageQueue = new LinkedBlockingQueue<>();
+		this.messageQueue = new LinkedBlockingQueue<>(config.sendQueueCapacity);
 		this.messageListeners = new CopyOnWriteArrayList<>();
+		this.decodedTextListeners = new CopyOnWriteArrayList<>();
+		this.wordCache = new MorseWordCache(MorseCodebook.ITU, config.wordCacheSize);
 		this.lastHeartbeatResponse = System.currentTimeMillis();
 	}
 	
@@ -129,6 +199,15 @@ public class SerialTcpClient {
 		messageListeners.remove(listener);
 	}
 	
+	// Receives (serialPort, word) for text decoded from MORSE_TIMINGS frames
+	public void addDecodedTextListener(BiConsumer<String, String> listener) {
+		decodedTextListeners.add(listener);
+	}
+	
+	public void removeDecodedTextListener(BiConsumer<String, String> listener) {
+		decodedTextListeners.remove(listener);
+	}
+	
 	// Send text message to serial port
 	public void sendText(String port, String key, String value) throws InterruptedException {
 		Message msg = new Message("TEXT", port, key, value);
@@ -137,10 +216,166 @@ public class SerialTcpClient {
 	
 	// Send binary message to serial port (value should be hex string)
 	public void sendBinary(String port, String key, String hexValue) throws InterruptedException {
+		HexCodec.decodedLength(hexValue, 0, hexValue.length()); // reject bad hex here, not at the server
 		Message msg = new Message("BINARY", port, key, hexValue);
 		messageQueue.put(msg);
 	}
 	
+	// Send data[0, length) as a binary message
+	public void sendBinary(String port, String key, byte[] data, int length) throws InterruptedException {
+		messageQueue.put(new Message("BINARY", port, key, HexCodec.encode(data, 0, length)));
+	}
+	
+	// LED_TOGGLE through the server's CSV command: <toggles> blinks of 10 * <delayMultiplier> ms
+	public void sendCsv(String port, int toggles, int delayMultiplier) throws InterruptedException {
+		messageQueue.put(new Message("CSV", port, "LED_TOGGLE", toggles + "," + delayMultiplier));
+	}
+	
+	// Only RECEIVED messages matching (port, key) from now on; "*" and "prefix*" patterns work.
+	// Kept across reconnects.
+	public void subscribe(String port, String key) throws InterruptedException {
+		String line = "SUBSCRIBE " + port + " " + key;
+		filtered = true;
+		subscriptions.add(line);
+		messageQueue.put(new Message(line));
+	}
+	
+	public void unsubscribe(String port, String key) throws InterruptedException {
+		filtered = true;
+		subscriptions.remove("SUBSCRIBE " + port + " " + key);
+		messageQueue.put(new Message("UNSUBSCRIBE " + port + " " + key));
+	}
+	
+	// Non-blocking sendBinary for callers that must not wait on the queue (e.g. the Morse timer thread)
+	public boolean enqueueBinary(String port, String key, String hexValue) {
+		return messageQueue.offer(new Message("BINARY", port, key, hexValue));
+	}
+	
+	// Send text as MORSE_PROGRAM frames (one per sentence, split only if it exceeds the device frame size).
+	// Words are encoded through the word cache, so repeated words are a lookup and an array copy.
+	// Returns the number of characters skipped because they are not in the codebook.
+	public int sendMorse(String port, CharSequence text) throws InterruptedException {
+		MorseProgram program = new MorseProgram(MorseCodebook.ITU, config.morseUnitMs);
+		int skipped = 0;
+		boolean wordGapDue = false; // a word went out; the next one starts after a word gap
+		
+		int i = 0;
+		while (i < text.length()) {
+			if (text.charAt(i) == ' ') {
+				i++;
+				continue;
+			}
+			int start = i;
+			while (i < text.length() && text.charAt(i) != ' ') {
+				i++;
+			}
+			
+			MorseWordCache.Entry entry = wordCache.get(text.subSequence(start, i).toString());
+			skipped += entry.getSkipped();
+			byte[] runs = entry.getRuns();
+			if (runs.length == 0) {
+				continue;
+			}
+			
+			if (wordGapDue) {
+				// Previous word ends with a letter gap (03); stretch it to a word gap (07), or
+				// if it ended the frame already sent, open this one with the rest of the gap
+				boolean sameFrame = !program.isEmpty();
+				program.append(' ');
+				if (sameFrame && runs.length > program.remaining()) {
+					flushMorse(port, program);
+				}
+			}
+			
+			// Runs are independent, so an oversized word may be cut at any run boundary
+			int offset = 0;
+			while (offset < runs.length) {
+				int chunk = Math.min(runs.length - offset, program.remaining());
+				program.appendRuns(runs, offset, chunk);
+				offset += chunk;
+				if (program.remaining() == 0) {
+					flushMorse(port, program);
+				}
+			}
+			wordGapDue = true;
+		}
+		flushMorse(port, program);
+		return skipped;
+	}
+	
+	public MorseWordCache getWordCache() {
+		return wordCache;
+	}
+	
+	// Stream arbitrarily large text (file, stdin) as MORSE_PROGRAM frames with constant memory.
+	// Line breaks are word gaps; frames are cut only when full (gaps across a cut as in sendMorse). Blocks while the send queue is full.
+	// Returns the number of characters skipped because they are not in the codebook.
+	public long sendMorseStream(String port, ReadableByteChannel channel) throws IOException, InterruptedException {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+		.onMalformedInput(CodingErrorAction.REPLACE)
+		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer bytes = ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE);
+		CharBuffer chars = CharBuffer.allocate(STREAM_BUFFER_SIZE);
+		MorseProgram program = new MorseProgram(MorseCodebook.ITU, config.morseUnitMs);
+		long skipped = 0;
+		
+		boolean eof = false;
+		while (!eof) {
+			eof = channel.read(bytes) < 0;
+			bytes.flip();
+			decoder.decode(bytes, chars, eof);
+			if (eof) {
+				decoder.flush(chars);
+			}
+			bytes.compact();
+			
+			chars.flip();
+			while (chars.hasRemaining()) {
+				char c = chars.get();
+				if (c == '\n' || c == '\r' || c == '\t') {
+					c = ' ';
+				}
+				if (!appendMorse(port, program, c)) {
+					skipped++;
+				}
+			}
+			chars.clear();
+		}
+		flushMorse(port, program);
+		return skipped;
+	}
+	
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+	
+	private boolean appendMorse(String port, MorseProgram program, char c) throws InterruptedException {
+		boolean known = program.append(c);
+		if (program.isFull()) {
+			flushMorse(port, program);
+		}
+		return known;
+	}
+	
+	private void flushMorse(String port, MorseProgram program) throws InterruptedException {
+		if (!program.isEmpty()) {
+			sendBinary(port, MorseProgram.KEY, program.array(), program.length());
+			program.nextFrame();
+		}
+	}
+	
+	// Block until every queued message has been handed to the connection
+	public void awaitDrained() throws InterruptedException {
+		synchronized (drained) {
+			while (!messageQueue.isEmpty()) {
+				drained.wait();
+			}
+		}
+	}
+	
+	// Ask start() to return once the current connection loop notices
+	public void stop() {
+		isRunning.set(false);
+	}
+	
 	private void handleConnection(String serverHost, int serverPort) throws IOException {
 		try (Socket socket = new Socket()) {
 			currentSocket = socket;
@@ -154,8 +389,9 @@ public class SerialTcpClient {
 			try (PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
 			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
 				
-				Thread responseThread = startResponseHandler(in);
-				Thread heartbeatThread = startHeartbeatSender(out);
+				Thread responseThread = startResponseHandler(in, socket);
+				Thread heartbeatThread = startHeartbeatSender(out, socket);
+				resubscribe(out);
 				
 				while (!socket.isClosed() && isRunning.get()) {
 					Message message = messageQueue.poll(100, TimeUnit.MILLISECONDS);
@@ -164,11 +400,17 @@ public class SerialTcpClient {
 							String formattedMessage = message.format();
 							out.println(formattedMessage);
 							
-							if (!out.checkError()) {
-								System.out.println("Sent: " + formattedMessage);
-							} else {
+							if (out.checkError()) {
 								throw new IOException("Failed to send message - connection lost");
 							}
+							if (config.verbose) {
+								System.out.println("Sent: " + formattedMessage);
+							}
+							if (messageQueue.isEmpty()) {
+								synchronized (drained) {
+									drained.notifyAll();
+								}
+							}
 						} catch (Exception e) {
 							System.err.println("Error sending message: " + e.getMessage());
 							throw e;
@@ -183,19 +425,39 @@ public class SerialTcpClient {
 		}
 	}
 	
-	private Thread startResponseHandler(BufferedReader in) {
+	// A new connection starts with the server's implicit "* *"; restore this client's filter
+	private void resubscribe(PrintWriter out) {
+		if (!filtered) return;
+		synchronized (subscriptions) {
+			if (subscriptions.isEmpty()) {
+				out.println("UNSUBSCRIBE * *");
+			}
+			for (String line : subscriptions) {
+				out.println(line);
+			}
+		}
+	}
+	
+	// Closing the connection's own socket on failure ends handleConnection(), so start() reconnects
+	private Thread startResponseHandler(BufferedReader in, Socket socket) {
 		Thread responseThread = new Thread(() -> {
 			try {
 				String response;
 				while ((response = in.readLine()) != null) {
+					// The server skips heartbeats while other lines flow, so any line proves it is alive
+					lastHeartbeatResponse = System.currentTimeMillis();
+					if (!morseCollectors.isEmpty()) {
+						flushIdleMorse(lastHeartbeatResponse);
+					}
 					if (response.equals(config.heartbeatMessage)) {
-						lastHeartbeatResponse = System.currentTimeMillis();
-						//System.out.println(config.heartbeatMessage); // Echo heartbeat back
 						continue;
 					}
 					
 					// Handle "RECEIVED" messages from server
 					if (response.startsWith("RECEIVED")) {
+						if (!decodedTextListeners.isEmpty() && response.startsWith(RECEIVED_BINARY_PREFIX)) {
+							decodeMorseTimings(response);
+						}
 						for (Consumer<String> listener : messageListeners) {
 							try {
 								listener.accept(response);
@@ -203,7 +465,7 @@ public class SerialTcpClient {
 								System.err.println("Error in message listener: " + e.getMessage());
 							}
 						}
-					} else {
+					} else if (config.verbose) {
 						// Handle other server messages
 						System.out.println("Server: " + response);
 					}
@@ -215,13 +477,94 @@ public class SerialTcpClient {
 					System.err.println("Lost connection to server: " + e.getMessage());
 				}
 			}
+			closeSocket(socket); // end of stream or error: this connection is over
 		});
 		responseThread.setDaemon(true);
 		responseThread.start();
 		return responseThread;
 	}
 	
-	private Thread startHeartbeatSender(PrintWriter out) {
+	private static final String RECEIVED_BINARY_PREFIX = "RECEIVED BINARY ";
+	
+	// "RECEIVED BINARY <port> MORSE_TIMINGS <hex>" -> per-port streaming decoder
+	private void decodeMorseTimings(String response) {
+		int portStart = RECEIVED_BINARY_PREFIX.length();
+		int portEnd = response.indexOf(' ', portStart);
+		if (portEnd < 0) return;
+		int keyEnd = response.indexOf(' ', portEnd + 1);
+		if (keyEnd < 0 || keyEnd - portEnd - 1 != MorseDecoder.KEY.length()
+		|| !response.regionMatches(portEnd + 1, MorseDecoder.KEY, 0, MorseDecoder.KEY.length())) {
+			return;
+		}
+		
+		String port = response.substring(portStart, portEnd);
+		morseCollectors.computeIfAbsent(port, WordCollector::new).feed(response, keyEnd + 1);
+	}
+	
+	// Hand out the last word of transmissions that have gone quiet; runs on every
+	// server line, and the server sends at least a heartbeat every few seconds
+	private void flushIdleMorse(long now) {
+		for (WordCollector collector : morseCollectors.values()) {
+			collector.flushIfIdle(now);
+		}
+	}
+	
+	// Decodes one port's MORSE_TIMINGS and hands out complete words. Frames are cut
+	// by the firmware's buffer, not at word boundaries, so a word ends only on a
+	// decoded word gap; nothing follows the last word of a transmission, so it is
+	// delivered once the port has been quiet for a word gap.
+	private class WordCollector implements MorseDecoder.CharSink {
+		private final String port;
+		private final MorseDecoder decoder;
+		private final StringBuilder word = new StringBuilder();
+		private long lastFrameTime;
+		
+		WordCollector(String port) {
+			this.port = port;
+			this.decoder = new MorseDecoder(config.morseUnitMs, this);
+		}
+		
+		void feed(CharSequence response, int hexStart) {
+			lastFrameTime = System.currentTimeMillis();
+			try {
+				decoder.feedHex(response, hexStart, response.length());
+			} catch (IllegalArgumentException e) {
+				System.err.println("Invalid MORSE_TIMINGS frame from " + port + ": " + e.getMessage());
+				decoder.reset();
+			}
+		}
+		
+		void flushIfIdle(long now) {
+			if (now - lastFrameTime >= MorseProgram.WORD_GAP_UNITS * decoder.getUnitMs()) {
+				decoder.flush();
+				endWord();
+			}
+		}
+		
+		@Override
+		public void onChar(char c) {
+			if (c != ' ') {
+				word.append(c);
+				return;
+			}
+			endWord();
+		}
+		
+		private void endWord() {
+			if (word.length() == 0) return;
+			String text = word.toString();
+			word.setLength(0);
+			for (BiConsumer<String, String> listener : decodedTextListeners) {
+				try {
+					listener.accept(port, text);
+				} catch (Exception e) {
+					System.err.println("Error in decoded text listener: " + e.getMessage());
+				}
+			}
+		}
+	}
+	
+	private Thread startHeartbeatSender(PrintWriter out, Socket socket) {
 		Thread heartbeatThread = new Thread(() -> {
 			while (!Thread.currentThread().isInterrupted() && isRunning.get()) {
 				try {
@@ -238,6 +581,7 @@ public class SerialTcpClient {
 					break;
 				} catch (IOException e) {
 					System.err.println("Heartbeat failed: " + e.getMessage());
+					closeSocket(socket);
 					break;
 				}
 			}
@@ -267,7 +611,9 @@ public class SerialTcpClient {
 						String[] parts = input.split(" ", 4);
 						if (parts.length == 4) {
 							Message msg = new Message(parts[0], parts[1], parts[2], parts[3]);
-							messageQueue.add(msg);
+							if (!messageQueue.offer(msg)) {
+								System.out.println("Send queue full, message dropped");
+							}
 						} else {
 							System.out.println("Invalid format. Use: <TYPE> <PORT> <KEY> <VALUE>");
 						}
@@ -319,34 +665,89 @@ public class SerialTcpClient {
 	}
 	
 	private void closeCurrentSocket() {
-		if (currentSocket != null && !currentSocket.isClosed()) {
+		closeSocket(currentSocket);
+	}
+	
+	private static void closeSocket(Socket socket) {
+		if (socket != null && !socket.isClosed()) {
 			try {
-				currentSocket.close();
+				socket.close();
 			} catch (IOException e) {
 				System.err.println("Error closing socket: " + e.getMessage());
 			}
 		}
 	}
 	
+	private static void printUsage() {
+		System.out.println("Usage: java SerialTcpClient <server_host> <server_port> <serial_port> [wpm] [--per-element] [--file <path> | --stdin]");
+		System.out.println(" --per-element: key each dot/dash as its own LED_TOGGEL message (firmware without MORSE_PROGRAM)");
+	}
+	
 	public static void main(String[] args) {
-		if (args.length != 3) {
-			System.out.println("Usage: java SerialTcpClient <server_host> <server_port> <serial_port>");
+		if (args.length < 3) {
+			printUsage();
 			return;
 		}
 		
 		String serverHost = args[0];
 		int serverPort = Integer.parseInt(args[1]);
 		String serialPort = args[2]; // Would be something like "/dev/cu.usbmodem11101" in Mac/linux ... Windows something like COM4
+		int wpm = 12;
+		String inputFile = null;  // bulk mode: encode a whole file
+		boolean stdinMode = false; // bulk mode: encode everything piped to stdin
+		boolean perElement = false; // interactive: time dots/dashes here instead of sending MORSE_PROGRAM
+		for (int i = 3; i < args.length; i++) {
+			if (args[i].equals("--file")) {
+				if (i + 1 == args.length || args[i + 1].startsWith("--")) {
+					System.out.println("--file needs a path");
+					printUsage();
+					return;
+				}
+				inputFile = args[++i];
+			} else if (args[i].equals("--stdin")) {
+				stdinMode = true;
+			} else if (args[i].equals("--per-element")) {
+				perElement = true;
+			} else {
+				try {
+					wpm = Integer.parseInt(args[i]);
+				} catch (NumberFormatException e) {
+					System.out.println("Unknown option: " + args[i]);
+					printUsage();
+					return;
+				}
+			}
+		}
 		
-		ClientConfig config = new ClientConfig.Builder().build();
+		ClientConfig config = new ClientConfig.Builder().wpm(wpm).build();
 		SerialTcpClient client = new SerialTcpClient(config);
 		
 		// Add message listener for received messages
 		client.addMessageListener(message -> System.out.println("Serial message: " + message));
+		client.addDecodedTextListener((port, word) -> System.out.println("Decoded from " + port + ": " + word));
 		
 		boolean interactive = false;
 		
-		if (interactive) {
+		if (inputFile != null || stdinMode) {
+			// Bulk mode: stream the input, wait for the queue to drain, then exit
+			Thread clientThread = new Thread(() -> client.start(serverHost, serverPort, false));
+			clientThread.start();
+			
+			try (ReadableByteChannel channel = (inputFile != null)
+			? FileChannel.open(Paths.get(inputFile))
+			: Channels.newChannel(System.in)) {
+				long skipped = client.sendMorseStream(serialPort, channel);
+				if (skipped > 0) {
+					System.out.println(skipped + " unknown character(s) skipped.");
+				}
+				client.awaitDrained();
+			} catch (IOException e) {
+				System.err.println("Error reading input: " + e.getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			client.stop();
+		} else if (interactive) {
 			// Start client interactive mode
 			client.start(serverHost, serverPort, interactive);
 		} else {
@@ -354,486 +755,31 @@ public class SerialTcpClient {
 			Thread clientThread = new Thread(() -> client.start(serverHost, serverPort, interactive));
 			clientThread.start();
 
-			final int long_sleep = 500; //pause between letters
-			final int short_sleep = 250; //pause between dots/dashes
-			final String dot = "20"; //dot
-			final String dash = "50"; //dash
+			boolean useProgram = !perElement; // false: one LED_TOGGEL per dot/dash (firmware without MORSE_PROGRAM)
+			// The timer thread must not block, so a full send queue loses the element; say so
+			AtomicLong droppedElements = new AtomicLong();
+			MorseScheduler scheduler = useProgram ? null : new MorseScheduler(MorseCodebook.ITU, wpm, dash -> {
+				if (!client.enqueueBinary(serialPort, "LED_TOGGEL", dash ? "50" : "20")) {
+					System.err.printf("[ERROR] Send queue full, Morse %s dropped (%d so far)%n",
+					dash ? "dash" : "dot", droppedElements.incrementAndGet());
+				}
+			});
 
+			Scanner scunner = new Scanner(System.in);
 			try {
 				while (true) {
-					Scanner scunner = new Scanner(System.in);
 					System.out.println("plz enter word");
 					String word = scunner.nextLine();
 					String sentence = word.trim();
-						char[] letter = sentence.toCharArray();
-					for (char n : letter) {
-						if (n == 'A' || n == 'a'){
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						} else if (n == 'B' || n == 'b') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						} else if (n == 'C' || n == 'c') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-						}
-						if (n == 'D' || n == 'd') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-						else if (n == 'E' || n == 'e') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-						else if (n == 'F' || n == 'f') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-						else if (n == 'G' || n == 'g') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-						else if (n == 'H' || n == 'h') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-						else if (n == 'I' || n == 'i') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == 'J' || n == 'j') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'K' || n == 'k') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'L' || n == 'l') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == 'M' || n == 'm') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'N' || n == 'n') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == 'O' || n == 'o') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'P' || n == 'p') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == 'Q' || n == 'q') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'R' || n == 'r') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
+					if (useProgram) {
+						int skipped = client.sendMorse(serialPort, sentence);
+						if (skipped > 0) {
+							System.out.println(skipped + " unknown character(s) skipped.");
 						}
-
-						else if (n == 'S' || n == 's') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == 'T' || n == 't') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'U' || n == 'u') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'V' || n == 'v') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'W' || n == 'w') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'X' || n == 'x') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == 'Y' || n == 'y') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == 'Z' || n == 'z') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						} else if (n == ' ') {
-							Thread.sleep(long_sleep);
-						}
-						else if (n == '1') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-						else if (n == '2') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-						else if (n == '3') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == '4') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == '5') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == '6') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == '7') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == '8') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == '9') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == '0') {
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-						else if (n == '.') { // Period
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == ',') { // Comma
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == '?') { // Question mark
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-						else if (n == ':') { // Colon
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == ';') { // Semicolon
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == '+') { // Plus
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-
-						else if (n == '-') { // Minus
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == '=') { // Equals
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-						}
-
-						else if (n == '/') { // Forward slash
-							Thread.sleep(long_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dash);
-							Thread.sleep(short_sleep);
-							client.sendBinary(serialPort, "LED_TOGGEL", dot);
-						}
-						else {
-							System.out.println("Unknown character sent. Skipping.");
+					} else {
+						int skipped = scheduler.submit(sentence + " ");
+						if (skipped > 0) {
+							System.out.println(skipped + " unknown character(s) skipped.");
 						}
 					}
 				}
@@ -843,5 +789,4 @@ public class SerialTcpClient {
 			}
 		}
 	}
-}
-
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+import java.io.*;
+import java.net.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+* Checks for SerialTcpClient against a scripted server on a local socket.
+* No test framework: run with `java -cp .:jSerialComm-2.11.0.jar SerialTcpClientTest`,
+* a failed check throws and the exit status is non-zero.
+*/
+public class SerialTcpClientTest {
+
+	private static final String PORT = "/dev/ttyTEST";
+	private static final int UNIT_MS = 100;
+
+	public static void main(String[] args) throws Exception {
+		decodedWordSpansFrames();
+		wordGapAcrossFullFrame();
+		truncatedTimingsRejected();
+		System.out.println("All SerialTcpClient checks passed");
+	}
+
+	// The firmware cuts MORSE_TIMINGS frames where its buffer fills, here on the
+	// letter gap inside "SOS"; the word must still come out whole
+	static void decodedWordSpansFrames() throws Exception {
+		try (ScriptedServer server = new ScriptedServer()) {
+			SerialTcpClient client = server.client();
+			BlockingQueue<String> words = new LinkedBlockingQueue<>();
+			client.addDecodedTextListener((port, word) -> words.add(word));
+			server.connect();
+
+			server.sendLine("RECEIVED BINARY " + PORT + " MORSE_TIMINGS "
+			+ timings(100, -100, 100, -100, 100, -300));                           // S, letter gap
+			server.sendLine("RECEIVED BINARY " + PORT + " MORSE_TIMINGS "
+			+ timings(300, -100, 300, -100, 300, -300, 100, -100, 100, -100, 100, -700)); // O S, word gap
+
+			check("SOS".equals(words.poll(2, TimeUnit.SECONDS)), "word split across frames");
+			check(words.poll(3 * MorseProgram.WORD_GAP_UNITS * UNIT_MS, TimeUnit.MILLISECONDS) == null,
+			"no further words");
+			client.stop();
+		}
+		System.out.println("ok decodedWordSpansFrames");
+	}
+
+	// A frame ending in a partial duration is rejected whole, not decoded up to
+	// the fragment; the next valid frame still decodes
+	static void truncatedTimingsRejected() throws Exception {
+		try (ScriptedServer server = new ScriptedServer()) {
+			SerialTcpClient client = server.client();
+			BlockingQueue<String> words = new LinkedBlockingQueue<>();
+			client.addDecodedTextListener((port, word) -> words.add(word));
+			server.connect();
+
+			server.sendLine("RECEIVED BINARY " + PORT + " MORSE_TIMINGS "
+			+ timings(100, -100, 100, -100, 100, -700) + "00");                  // S, word gap, fragment
+			check(words.poll(3 * MorseProgram.WORD_GAP_UNITS * UNIT_MS, TimeUnit.MILLISECONDS) == null,
+			"nothing decoded from the truncated frame");
+			server.sendLine("RECEIVED BINARY " + PORT + " MORSE_TIMINGS "
+			+ timings(300, -100, 300, -100, 300, -700));                         // O, word gap
+			check("O".equals(words.poll(2, TimeUnit.SECONDS)), "next frame decoded");
+			client.stop();
+		}
+		System.out.println("ok truncatedTimingsRejected");
+	}
+
+	// "E" is two runs (dot, letter gap), so with the gap stretched in place 1023
+	// words fill a frame exactly; the word after them opens the next frame, and
+	// the device must still see a 7-unit gap between them, not 3 + 7
+	static void wordGapAcrossFullFrame() throws Exception {
+		int words = MorseProgram.MAX_RUNS + 100; // crosses two frame boundaries
+		String text = String.join(" ", Collections.nCopies(words, "E")) + " ";
+		try (ScriptedServer server = new ScriptedServer()) {
+			SerialTcpClient client = server.client();
+			server.connect();
+
+			client.sendMorse(PORT, text);
+			checkWordGaps(server.readMorsePrograms(client), words, "sendMorse");
+
+			client.sendMorseStream(PORT, Channels.newChannel(
+			new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))));
+			checkWordGaps(server.readMorsePrograms(client), words, "sendMorseStream");
+			client.stop();
+		}
+		System.out.println("ok wordGapAcrossFullFrame");
+	}
+
+	// Play the frames back to back as the device does: every key-up between two
+	// dots must last exactly one word gap
+	private static void checkWordGaps(List<byte[]> frames, int words, String path) {
+		check(frames.size() > 1, path + " cut the text into several frames");
+		List<Integer> offRuns = new ArrayList<>();
+		int dots = 0;
+		int off = 0;
+		for (byte[] frame : frames) {
+			for (int i = MorseProgram.HEADER_SIZE; i < frame.length; i++) {
+				int run = frame[i] & 0xFF;
+				if ((run & MorseProgram.LEVEL_ON) == 0) {
+					off += run;
+					continue;
+				}
+				check((run & MorseProgram.UNITS_MASK) == MorseProgram.DOT_UNITS, path + " dot length");
+				if (dots++ > 0) {
+					offRuns.add(off);
+				}
+				off = 0;
+			}
+		}
+		check(dots == words, path + " sent every word (" + dots + " of " + words + ")");
+		for (int i = 0; i < offRuns.size(); i++) {
+			check(offRuns.get(i) == MorseProgram.WORD_GAP_UNITS,
+			path + " word gap " + i + " is " + offRuns.get(i) + " units");
+		}
+	}
+
+	// MORSE_TIMINGS value: signed 16-bit durations, positive = key down
+	private static String timings(int... millis) {
+		byte[] value = new byte[millis.length * 2];
+		for (int i = 0; i < millis.length; i++) {
+			value[2 * i] = (byte) (millis[i] >> 8);
+			value[2 * i + 1] = (byte) millis[i];
+		}
+		return HexCodec.encode(value);
+	}
+
+	private static void check(boolean condition, String what) {
+		if (!condition) {
+			throw new AssertionError("Check failed: " + what);
+		}
+	}
+
+	// One client connection on an ephemeral port; lines are written and read by the test
+	static class ScriptedServer implements Closeable {
+		private final ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		private SerialTcpClient client;
+		private Socket socket;
+		private PrintWriter out;
+		private BufferedReader in;
+
+		ScriptedServer() throws IOException {
+		}
+
+		SerialTcpClient client() {
+			client = new SerialTcpClient(new SerialTcpClient.ClientConfig.Builder()
+			.morseUnitMs(UNIT_MS)
+			.maxReconnectAttempts(1)
+			.verbose(false)
+			.build());
+			return client;
+		}
+
+		void connect() throws IOException {
+			Thread clientThread = new Thread(() -> client.start(
+			listener.getInetAddress().getHostAddress(), listener.getLocalPort(), false));
+			clientThread.setDaemon(true);
+			clientThread.start();
+
+			listener.setSoTimeout(5000);
+			socket = listener.accept();
+			socket.setSoTimeout(5000);
+			out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+			in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		}
+
+		void sendLine(String line) {
+			out.println(line);
+		}
+
+		// Values of the MORSE_PROGRAM lines the client has queued so far, read up to
+		// a marker line queued after them
+		List<byte[]> readMorsePrograms(SerialTcpClient client) throws Exception {
+			client.sendText(PORT, "END_OF_TEST", "-");
+			String prefix = "BINARY " + PORT + " " + MorseProgram.KEY + " ";
+			List<byte[]> values = new ArrayList<>();
+			String line;
+			while ((line = in.readLine()) != null && !line.startsWith("TEXT ")) {
+				if (line.startsWith(prefix)) {
+					values.add(HexCodec.decode(line.substring(prefix.length())));
+				}
+			}
+			return values;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (client != null) {
+				client.stop();
+			}
+			if (socket != null) {
+				socket.close();
+			}
+			listener.close();
+		}
+	}
+}
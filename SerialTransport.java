@@ -0,0 +1,75 @@
+/**
+* Byte transport under a SerialCommunication port.
+*
+* Semantics follow jSerialComm with semi-blocking reads and blocking writes:
+* read() waits up to the read timeout for at least one byte, write() up to the
+* write timeout for room. Implementations are used by one read thread and one
+* write thread at a time; open() and close() come from the port manager.
+*
+* Which implementation serves a port is chosen by SerialTransports from the
+* port name ("loop://...", "pty://...", registered schemes, else jSerialComm).
+*/
+public interface SerialTransport {
+
+	/**
+	* Configure and open. Returns false if the port is not available (yet).
+	*/
+	boolean open();
+
+	boolean isOpen();
+
+	/**
+	* Read up to `length` bytes into buffer[offset...]. Returns the count,
+	* 0 if the read timeout passed with no data, or -1 if the port is gone.
+	*/
+	int read(byte[] buffer, int length, int offset);
+
+	/**
+	* Bytes received and readable right now, without waiting (0 if none or the
+	* port is gone).
+	*/
+	int available();
+
+	/**
+	* Write up to `length` bytes from data[offset...]. Returns the count
+	* (0 if the write timeout passed), or -1 on error.
+	*/
+	int write(byte[] data, int length, int offset);
+
+	void close();
+
+	/**
+	* Line settings and timeouts, as given to SerialCommunication.addSerialPort
+	* (stop bits and parity use the jSerialComm constants).
+	*/
+	final class Settings {
+		public final int baudRate;
+		public final int dataBits;
+		public final int stopBits;
+		public final int parity;
+		public final int readTimeoutMs;
+		public final int writeTimeoutMs;
+
+		public Settings(int baudRate, int dataBits, int stopBits, int parity, int readTimeoutMs, int writeTimeoutMs) {
+			this.baudRate = baudRate;
+			this.dataBits = dataBits;
+			this.stopBits = stopBits;
+			this.parity = parity;
+			this.readTimeoutMs = readTimeoutMs;
+			this.writeTimeoutMs = writeTimeoutMs;
+		}
+
+		/**
+		* Bits on the wire per byte (start + data + parity + stop), in tenths
+		* so 1.5 stop bits is exact.
+		*/
+		public int bitsPerByteTenths() {
+			int stopTenths = (stopBits == 2) ? 15 : (stopBits == 3) ? 20 : 10;
+			return 10 + dataBits * 10 + (parity != 0 ? 10 : 0) + stopTenths;
+		}
+	}
+
+	interface Factory {
+		SerialTransport create(String portName, Settings settings);
+	}
+}
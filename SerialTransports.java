@@ -0,0 +1,74 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+* Chooses the SerialTransport for a port name.
+*
+*  loop://<link>[?options]  in-memory loopback (LoopbackTransport)
+*  pty://<name>             Linux pseudo-terminal (PtyTransport)
+*  emu://<board>[?options]  emulated Pico on a loopback link (PicoEmulator)
+*  <other scheme>://...     whatever was registered with registerScheme()
+*  anything else            jSerialComm (/dev/ttyACM0, COM3, ...)
+*/
+public final class SerialTransports {
+
+	private static final Map<String, SerialTransport.Factory> schemes = new ConcurrentHashMap<>();
+
+	static {
+		registerScheme(LoopbackTransport.SCHEME, LoopbackTransport::forPort);
+		registerScheme(PtyTransport.SCHEME, PtyTransport::new);
+		registerScheme(PicoEmulator.SCHEME, PicoEmulator::forPort);
+	}
+
+	private SerialTransports() {
+	}
+
+	/**
+	* Serve port names starting with "<scheme>://" from factory.
+	*/
+	public static void registerScheme(String scheme, SerialTransport.Factory factory) {
+		schemes.put(scheme.toLowerCase(), factory);
+	}
+
+	public static SerialTransport create(String portName, SerialTransport.Settings settings) {
+		int sep = portName.indexOf("://");
+		if (sep > 0) {
+			SerialTransport.Factory factory = schemes.get(portName.substring(0, sep).toLowerCase());
+			if (factory != null) {
+				return factory.create(portName, settings);
+			}
+		}
+		return new JSerialCommTransport(portName, settings);
+	}
+
+	/**
+	* "scheme://name?a=1&b" -> "name"
+	*/
+	static String nameOf(String portName) {
+		int start = portName.indexOf("://") + 3;
+		int query = portName.indexOf('?', start);
+		return (query < 0) ? portName.substring(start) : portName.substring(start, query);
+	}
+
+	/**
+	* "scheme://name?a=1&b" -> {a=1, b=""}
+	*/
+	static Map<String, String> optionsOf(String portName) {
+		Map<String, String> options = new HashMap<>();
+		int query = portName.indexOf('?');
+		if (query < 0) {
+			return options;
+		}
+		for (String option : portName.substring(query + 1).split("&")) {
+			if (option.isEmpty()) continue;
+			int eq = option.indexOf('=');
+			if (eq < 0) {
+				options.put(option, "");
+			} else {
+				options.put(option.substring(0, eq), option.substring(eq + 1));
+			}
+		}
+		return options;
+	}
+}
@@ -0,0 +1,130 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+* Hashed timing wheel for per-connection deadlines.
+*
+* Deadlines are rounded up to ticks and hashed into slots (tick % slots); each
+* advance only visits the slots of the ticks that elapsed, and within a slot
+* only entries whose tick has come expire (later rounds stay). The cost of a
+* tick is the number of expiring entries, not the number of connections.
+*
+* Any thread may schedule(); entries are handed over through a queue and placed
+* by the thread calling advance(), so the wheel itself needs no lock. There is
+* no cancel: the expiry handler decides whether to reschedule (return the next
+* deadline) or forget the item (return a negative value).
+*/
+final class TimingWheel<T> {
+
+	interface ExpiryHandler<T> {
+		/**
+		* Called on the advancing thread. Returns the next deadline in ms, or < 0 to drop the item.
+		*/
+		long onExpired(T item, long nowMillis);
+	}
+
+	private static final class Entry<T> {
+		final T item;
+		final long tick;
+
+		Entry(T item, long tick) {
+			this.item = item;
+			this.tick = tick;
+		}
+	}
+
+	private final long tickMillis;
+	private final List<ArrayDeque<Entry<T>>> slots;
+	private final Queue<Entry<T>> incoming = new ConcurrentLinkedQueue<>();
+	private final ExpiryHandler<T> handler;
+	private final List<Entry<T>> expired = new ArrayList<>();
+	private long currentTick = -1; // last processed tick (advancing thread only)
+	private int size;
+
+	TimingWheel(int slotCount, long tickMillis, ExpiryHandler<T> handler) {
+		if (slotCount <= 0 || tickMillis <= 0) {
+			throw new IllegalArgumentException("Invalid wheel: " + slotCount + " slots of " + tickMillis + " ms");
+		}
+		this.tickMillis = tickMillis;
+		this.handler = handler;
+		this.slots = new ArrayList<>(slotCount);
+		for (int i = 0; i < slotCount; i++) {
+			slots.add(new ArrayDeque<>());
+		}
+	}
+
+	/**
+	* Expire item at (or up to one tick after) deadlineMillis. Thread-safe.
+	*/
+	void schedule(T item, long deadlineMillis) {
+		incoming.add(new Entry<>(item, tickOf(deadlineMillis)));
+	}
+
+	/**
+	* Process every tick up to nowMillis. Call from one thread only.
+	*/
+	void advance(long nowMillis) {
+		long nowTick = nowMillis / tickMillis;
+		if (currentTick < 0) {
+			currentTick = nowTick - 1;
+		}
+		Entry<T> entry;
+		while ((entry = incoming.poll()) != null) {
+			place(entry);
+		}
+		// Far behind (e.g. after a long pause): one lap visits every slot
+		long from = Math.max(currentTick + 1, nowTick - slots.size() + 1);
+		for (long tick = from; tick <= nowTick; tick++) {
+			Iterator<Entry<T>> it = slots.get(slotOf(tick)).iterator();
+			while (it.hasNext()) {
+				Entry<T> e = it.next();
+				if (e.tick <= nowTick) {
+					it.remove();
+					size--;
+					expired.add(e);
+				}
+			}
+		}
+		currentTick = nowTick;
+
+		for (Entry<T> e : expired) {
+			long next;
+			try {
+				next = handler.onExpired(e.item, nowMillis);
+			} catch (Exception ex) {
+				System.err.println("Error in timing wheel handler: " + ex.getMessage());
+				continue;
+			}
+			if (next >= 0) {
+				place(new Entry<>(e.item, tickOf(next)));
+			}
+		}
+		expired.clear();
+	}
+
+	/**
+	* Items currently placed (approximate while others are scheduling)
+	*/
+	int size() {
+		return size + incoming.size();
+	}
+
+	private void place(Entry<T> entry) {
+		// Already due: put it in the next tick's slot so the next advance picks it up
+		long tick = Math.max(entry.tick, currentTick + 1);
+		slots.get(slotOf(tick)).add(tick == entry.tick ? entry : new Entry<>(entry.item, tick));
+		size++;
+	}
+
+	private long tickOf(long millis) {
+		return (millis + tickMillis - 1) / tickMillis;
+	}
+
+	private int slotOf(long tick) {
+		return (int) (tick % slots.size());
+	}
+}
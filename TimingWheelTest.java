@@ -0,0 +1,117 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+* Checks for TimingWheel, driven with explicit clock values (no sleeping). No
+* test framework: run with `java TimingWheelTest`, a failed check throws and
+* the exit status is non-zero.
+*/
+public class TimingWheelTest {
+
+	private static final int SLOTS = 8;
+	private static final long TICK_MS = 10;
+
+	public static void main(String[] args) {
+		expiresAtItsTick();
+		rescheduleAndDrop();
+		laterRoundsStayInTheirSlot();
+		catchesUpAfterLongPause();
+		System.out.println("All TimingWheel checks passed");
+	}
+
+	// Deadlines round up to the next tick: 1005 expires at 1010, not before; a
+	// deadline already past goes to the next tick
+	static void expiresAtItsTick() {
+		Recorder recorder = new Recorder();
+		TimingWheel<String> wheel = recorder.wheel();
+		wheel.advance(1000);
+		wheel.schedule("a", 1005);
+		wheel.schedule("b", 1010);
+		wheel.schedule("late", 990);
+
+		wheel.advance(1009);
+		check(recorder.expiries.isEmpty(), "nothing before the tick");
+		wheel.advance(1010);
+		check(recorder.expiries.equals(List.of("a@1010", "b@1010", "late@1010")), "all expire at tick 101");
+		check(wheel.size() == 0, "wheel empty");
+		System.out.println("ok expiresAtItsTick");
+	}
+
+	// The handler's return value reschedules (>= 0) or drops (< 0) the item
+	static void rescheduleAndDrop() {
+		Recorder recorder = new Recorder();
+		TimingWheel<String> wheel = recorder.wheel();
+		recorder.nextDeadline.put("again", 30L); // three times, 30 ms apart
+		wheel.advance(1000);
+		wheel.schedule("again", 1030);
+		wheel.schedule("once", 1030);
+
+		for (long now = 1000; now <= 1200; now += TICK_MS) {
+			wheel.advance(now);
+			if (now == 1030) {
+				check(wheel.size() == 1, "dropped item left the wheel, rescheduled one stayed");
+			}
+		}
+		check(recorder.expiries.equals(List.of("again@1030", "once@1030", "again@1060", "again@1090", "again@1120")),
+		"rescheduled three times then dropped: " + recorder.expiries);
+		check(wheel.size() == 0, "wheel empty");
+		System.out.println("ok rescheduleAndDrop");
+	}
+
+	// A deadline several laps ahead shares slots with earlier ticks without expiring early
+	static void laterRoundsStayInTheirSlot() {
+		Recorder recorder = new Recorder();
+		TimingWheel<String> wheel = recorder.wheel();
+		wheel.advance(1000);
+		wheel.schedule("far", 1000 + 3 * SLOTS * TICK_MS + 20);
+		wheel.schedule("near", 1020); // same slot as "far"
+
+		for (long now = 1000; now <= 1400; now += TICK_MS) {
+			wheel.advance(now);
+		}
+		check(recorder.expiries.equals(List.of("near@1020", "far@1260")), "each at its own round: " + recorder.expiries);
+		System.out.println("ok laterRoundsStayInTheirSlot");
+	}
+
+	// One advance far past every deadline expires each item once
+	static void catchesUpAfterLongPause() {
+		Recorder recorder = new Recorder();
+		TimingWheel<String> wheel = recorder.wheel();
+		wheel.advance(1000);
+		for (int i = 0; i < 20; i++) {
+			wheel.schedule("i" + i, 1000 + i * 7 * TICK_MS);
+		}
+		wheel.advance(100_000);
+		check(recorder.expiries.size() == 20, "every item expired once (" + recorder.expiries.size() + ")");
+		wheel.advance(100_000 + SLOTS * TICK_MS);
+		check(recorder.expiries.size() == 20, "and only once");
+		System.out.println("ok catchesUpAfterLongPause");
+	}
+
+	private static void check(boolean condition, String what) {
+		if (!condition) {
+			throw new AssertionError("Check failed: " + what);
+		}
+	}
+
+	// Records "item@now" per expiry; items in nextDeadline come back after that
+	// many ms, three times
+	static final class Recorder {
+		final List<String> expiries = new ArrayList<>();
+		final Map<String, Long> nextDeadline = new HashMap<>();
+		private final Map<String, Integer> repeats = new HashMap<>();
+
+		TimingWheel<String> wheel() {
+			return new TimingWheel<>(SLOTS, TICK_MS, (item, now) -> {
+				expiries.add(item + "@" + now);
+				Long delay = nextDeadline.get(item);
+				if (delay == null || repeats.merge(item, 1, Integer::sum) > 3) {
+					return -1;
+				}
+				return now + delay;
+			});
+		}
+	}
+}
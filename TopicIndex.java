@@ -0,0 +1,201 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+* Index from (port, key) to the subscribers interested in it.
+*
+* Patterns: "*" matches anything, "ABC*" matches anything starting with "ABC",
+* anything else matches exactly. Exact names are hash lookups and each distinct
+* wildcard/prefix pattern is one bucket, so a lookup costs
+* O(distinct prefix patterns + matches), not O(subscribers).
+*
+* Lookups are lock-free and may run concurrently with changes; changes are
+* serialized on the index.
+*/
+final class TopicIndex<T> {
+
+	static final String ANY = "*";
+
+	private final Level<Level<Set<T>>> ports = new Level<>();
+	private final Map<T, Set<Topic>> topicsBySubscriber = new ConcurrentHashMap<>();
+
+	/**
+	* Throws IllegalArgumentException unless pattern is "*", "prefix*" or a plain name.
+	*/
+	static void validatePattern(String pattern) {
+		int star = pattern.indexOf('*');
+		if (pattern.isEmpty() || (star >= 0 && star != pattern.length() - 1)) {
+			throw new IllegalArgumentException("Invalid pattern '" + pattern + "': '*' is only allowed at the end");
+		}
+	}
+
+	/**
+	* Returns false if the subscriber already had this subscription.
+	*/
+	synchronized boolean subscribe(T subscriber, String portPattern, String keyPattern) {
+		validatePattern(portPattern);
+		validatePattern(keyPattern);
+		Topic topic = new Topic(portPattern, keyPattern);
+		if (!topicsBySubscriber.computeIfAbsent(subscriber, s -> ConcurrentHashMap.newKeySet()).add(topic)) {
+			return false;
+		}
+		ports.bucket(portPattern, Level::new).bucket(keyPattern, ConcurrentHashMap::newKeySet).add(subscriber);
+		return true;
+	}
+
+	/**
+	* Returns false if the subscriber did not have this subscription.
+	*/
+	synchronized boolean unsubscribe(T subscriber, String portPattern, String keyPattern) {
+		Set<Topic> topics = topicsBySubscriber.get(subscriber);
+		if (topics == null || !topics.remove(new Topic(portPattern, keyPattern))) {
+			return false;
+		}
+		if (topics.isEmpty()) {
+			topicsBySubscriber.remove(subscriber);
+		}
+		Level<Set<T>> keys = ports.get(portPattern);
+		Set<T> subscribers = keys.get(keyPattern);
+		subscribers.remove(subscriber);
+		if (subscribers.isEmpty()) {
+			keys.remove(keyPattern);
+			if (keys.isEmpty()) {
+				ports.remove(portPattern);
+			}
+		}
+		return true;
+	}
+
+	synchronized void unsubscribeAll(T subscriber) {
+		Set<Topic> topics = topicsBySubscriber.get(subscriber);
+		if (topics == null) {
+			return;
+		}
+		for (Topic topic : new ArrayList<>(topics)) {
+			unsubscribe(subscriber, topic.port, topic.key);
+		}
+	}
+
+	/**
+	* Subscriptions of one subscriber as "port key" strings.
+	*/
+	List<String> subscriptionsOf(T subscriber) {
+		List<String> result = new ArrayList<>();
+		for (Topic topic : topicsBySubscriber.getOrDefault(subscriber, Collections.emptySet())) {
+			result.add(topic.port + " " + topic.key);
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	/**
+	* Every subscriber with at least one pattern matching (port, key), once each.
+	*/
+	Collection<T> match(String port, String key) {
+		List<Set<T>> buckets = new ArrayList<>(4);
+		ports.forEachMatch(port, keys -> keys.forEachMatch(key, buckets::add));
+		if (buckets.isEmpty()) {
+			return Collections.emptySet();
+		}
+		if (buckets.size() == 1) {
+			return buckets.get(0);
+		}
+		Set<T> merged = new LinkedHashSet<>();
+		for (Set<T> bucket : buckets) {
+			merged.addAll(bucket);
+		}
+		return merged;
+	}
+
+	boolean isEmpty() {
+		return topicsBySubscriber.isEmpty();
+	}
+
+	/**
+	* One dimension (port or key): exact names, prefixes and the "*" bucket.
+	*/
+	private static final class Level<V> {
+		private final Map<String, V> exact = new ConcurrentHashMap<>();
+		private final Map<String, V> prefixes = new ConcurrentHashMap<>(); // prefix without the '*'
+		private final List<Map.Entry<String, V>> prefixList = new CopyOnWriteArrayList<>();
+		private volatile V any;
+
+		V get(String pattern) {
+			if (pattern.equals(ANY)) return any;
+			if (pattern.endsWith("*")) return prefixes.get(prefix(pattern));
+			return exact.get(pattern);
+		}
+
+		V bucket(String pattern, Supplier<V> create) {
+			V bucket = get(pattern);
+			if (bucket != null) {
+				return bucket;
+			}
+			bucket = create.get();
+			if (pattern.equals(ANY)) {
+				any = bucket;
+			} else if (pattern.endsWith("*")) {
+				prefixes.put(prefix(pattern), bucket);
+				prefixList.add(new AbstractMap.SimpleImmutableEntry<>(prefix(pattern), bucket));
+			} else {
+				exact.put(pattern, bucket);
+			}
+			return bucket;
+		}
+
+		void remove(String pattern) {
+			if (pattern.equals(ANY)) {
+				any = null;
+			} else if (pattern.endsWith("*")) {
+				String prefix = prefix(pattern);
+				prefixes.remove(prefix);
+				prefixList.removeIf(e -> e.getKey().equals(prefix));
+			} else {
+				exact.remove(pattern);
+			}
+		}
+
+		boolean isEmpty() {
+			return any == null && exact.isEmpty() && prefixes.isEmpty();
+		}
+
+		void forEachMatch(String name, Consumer<V> action) {
+			V bucket = exact.get(name);
+			if (bucket != null) action.accept(bucket);
+			for (Map.Entry<String, V> entry : prefixList) {
+				if (name.startsWith(entry.getKey())) action.accept(entry.getValue());
+			}
+			bucket = any;
+			if (bucket != null) action.accept(bucket);
+		}
+
+		private static String prefix(String pattern) {
+			return pattern.substring(0, pattern.length() - 1);
+		}
+	}
+
+	private static final class Topic {
+		final String port;
+		final String key;
+
+		Topic(String port, String key) {
+			this.port = port;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Topic)) return false;
+			Topic other = (Topic) o;
+			return port.equals(other.port) && key.equals(other.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * port.hashCode() + key.hashCode();
+		}
+	}
+}
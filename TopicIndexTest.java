@@ -0,0 +1,109 @@
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+* Checks for TopicIndex pattern matching. No test framework: run with
+* `java TopicIndexTest`, a failed check throws and the exit status is non-zero.
+*/
+public class TopicIndexTest {
+
+	public static void main(String[] args) {
+		exactNames();
+		prefixPatterns();
+		anyPattern();
+		overlappingPatternsMatchOnce();
+		unsubscribe();
+		rejectsInvalidPatterns();
+		System.out.println("All TopicIndex checks passed");
+	}
+
+	static void exactNames() {
+		TopicIndex<String> index = new TopicIndex<>();
+		index.subscribe("a", "/dev/ttyACM0", "LED");
+		checkMatch(index, "/dev/ttyACM0", "LED", Set.of("a"), "same port and key");
+		checkMatch(index, "/dev/ttyACM0", "LEDS", Set.of(), "longer key");
+		checkMatch(index, "/dev/ttyACM0", "led", Set.of(), "key case");
+		checkMatch(index, "/dev/ttyACM1", "LED", Set.of(), "other port");
+		System.out.println("ok exactNames");
+	}
+
+	static void prefixPatterns() {
+		TopicIndex<String> index = new TopicIndex<>();
+		index.subscribe("a", "/dev/ttyACM*", "MORSE_*");
+		checkMatch(index, "/dev/ttyACM0", "MORSE_TIMINGS", Set.of("a"), "both prefixes");
+		checkMatch(index, "/dev/ttyACM", "MORSE_", Set.of("a"), "prefix itself");
+		checkMatch(index, "/dev/ttyUSB0", "MORSE_TIMINGS", Set.of(), "other port prefix");
+		checkMatch(index, "/dev/ttyACM0", "MORSE", Set.of(), "key shorter than the prefix");
+		System.out.println("ok prefixPatterns");
+	}
+
+	static void anyPattern() {
+		TopicIndex<String> index = new TopicIndex<>();
+		index.subscribe("all", TopicIndex.ANY, TopicIndex.ANY);
+		index.subscribe("led", TopicIndex.ANY, "LED");
+		index.subscribe("acm0", "/dev/ttyACM0", TopicIndex.ANY);
+		checkMatch(index, "/dev/ttyACM0", "LED", Set.of("all", "led", "acm0"), "every pattern");
+		checkMatch(index, "/dev/ttyACM0", "X", Set.of("all", "acm0"), "any key");
+		checkMatch(index, "loop://x", "LED", Set.of("all", "led"), "any port");
+		checkMatch(index, "loop://x", "X", Set.of("all"), "only * *");
+		System.out.println("ok anyPattern");
+	}
+
+	// A subscriber matching through several patterns is returned once
+	static void overlappingPatternsMatchOnce() {
+		TopicIndex<String> index = new TopicIndex<>();
+		index.subscribe("a", TopicIndex.ANY, TopicIndex.ANY);
+		index.subscribe("a", "/dev/*", "LED");
+		index.subscribe("a", "/dev/ttyACM0", "L*");
+		index.subscribe("b", "/dev/*", "LED");
+		check(!index.subscribe("a", "/dev/*", "LED"), "repeated subscription reported");
+		checkMatch(index, "/dev/ttyACM0", "LED", Set.of("a", "b"), "merged buckets");
+		check(index.match("/dev/ttyACM0", "LED").size() == 2, "no duplicates");
+		check(index.subscriptionsOf("a").equals(List.of("* *", "/dev/* LED", "/dev/ttyACM0 L*")), "subscriptionsOf");
+		System.out.println("ok overlappingPatternsMatchOnce");
+	}
+
+	static void unsubscribe() {
+		TopicIndex<String> index = new TopicIndex<>();
+		index.subscribe("a", "/dev/*", TopicIndex.ANY);
+		index.subscribe("a", "loop://x", "K");
+		index.subscribe("b", "/dev/*", TopicIndex.ANY);
+		check(index.unsubscribe("a", "/dev/*", TopicIndex.ANY), "unsubscribe reported");
+		check(!index.unsubscribe("a", "/dev/*", TopicIndex.ANY), "second unsubscribe reported as missing");
+		checkMatch(index, "/dev/ttyACM0", "K", Set.of("b"), "shared bucket keeps the other subscriber");
+		checkMatch(index, "loop://x", "K", Set.of("a"), "other subscription kept");
+
+		index.unsubscribeAll("a");
+		index.unsubscribeAll("b");
+		checkMatch(index, "loop://x", "K", Set.of(), "nothing left");
+		check(index.isEmpty(), "index empty");
+		System.out.println("ok unsubscribe");
+	}
+
+	// '*' is only allowed as the last character
+	static void rejectsInvalidPatterns() {
+		for (String pattern : new String[] { "", "*LED", "L*D", "**" }) {
+			try {
+				TopicIndex.validatePattern(pattern);
+				check(false, "pattern '" + pattern + "' rejected");
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+		TopicIndex.validatePattern("LED*");
+		TopicIndex.validatePattern(TopicIndex.ANY);
+		System.out.println("ok rejectsInvalidPatterns");
+	}
+
+	private static void checkMatch(TopicIndex<String> index, String port, String key, Set<String> expected,
+	String what) {
+		Set<String> matched = new HashSet<>(index.match(port, key));
+		check(matched.equals(expected), what + ": " + port + " " + key + " matched " + matched);
+	}
+
+	private static void check(boolean condition, String what) {
+		if (!condition) {
+			throw new AssertionError("Check failed: " + what);
+		}
+	}
+}
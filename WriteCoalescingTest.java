@@ -0,0 +1,245 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+* Checks for SerialCommunication's write path: queued messages coalesced into
+* bursts, and the frames of a failed burst kept for retry after the reconnect.
+* Ports are "rec://<name>", a transport that records every write call. No test
+* framework: run with `java -cp .:jSerialComm-2.11.0.jar WriteCoalescingTest`,
+* a failed check throws and the exit status is non-zero.
+*/
+public class WriteCoalescingTest {
+
+	private static final String SCHEME = "rec";
+	private static final int FRAME_LENGTH = 8 + 1 + 4 + 1; // key "K", value "m000"
+	private static final Map<String, RecordingPort> ports = new ConcurrentHashMap<>();
+
+	public static void main(String[] args) throws Exception {
+		SerialTransports.registerScheme(SCHEME, (portName, settings) ->
+		ports.get(SerialTransports.nameOf(portName)).newTransport());
+		queuedMessagesShareOneWrite();
+		burstsBoundedByBatchBytes();
+		failedBurstKeptForRetry();
+		System.out.println("All write coalescing checks passed");
+	}
+
+	// Everything queued while a write is in progress goes out in the next single write
+	static void queuedMessagesShareOneWrite() throws Exception {
+		RecordingPort port = new RecordingPort("coalesce", Integer.MAX_VALUE);
+		SerialCommunication serialComm = port.open(4096);
+		try {
+			port.publishWhileFirstWriteBlocked(serialComm, 50);
+
+			check(port.waitForBytes(50 * FRAME_LENGTH), "all frames written");
+			check(port.writes.size() == 2, "two writes, not " + port.writes.size());
+			check(values(port.writes.get(1)).equals(range(1, 50)), "second write holds m001..m049 in order");
+		} finally {
+			serialComm.close();
+		}
+		System.out.println("ok queuedMessagesShareOneWrite");
+	}
+
+	// With room for 10 frames per burst, 50 queued messages take 5 writes of 10
+	static void burstsBoundedByBatchBytes() throws Exception {
+		RecordingPort port = new RecordingPort("batch", Integer.MAX_VALUE);
+		SerialCommunication serialComm = port.open(10 * FRAME_LENGTH);
+		try {
+			port.publishWhileFirstWriteBlocked(serialComm, 51);
+
+			check(port.waitForBytes(51 * FRAME_LENGTH), "all frames written");
+			check(port.writes.size() == 6, "six writes, not " + port.writes.size());
+			for (int i = 1; i < port.writes.size(); i++) {
+				check(values(port.writes.get(i)).equals(range(10 * i - 9, 10 * i + 1)), "write " + i + " holds 10 frames");
+			}
+		} finally {
+			serialComm.close();
+		}
+		System.out.println("ok burstsBoundedByBatchBytes");
+	}
+
+	// The link breaks 5 bytes into m003: m001 and m002 count as sent, m003..m009
+	// go out again, m003 whole, once the port is back
+	static void failedBurstKeptForRetry() throws Exception {
+		RecordingPort port = new RecordingPort("retry", 3 * FRAME_LENGTH + 5);
+		SerialCommunication serialComm = port.open(4096);
+		try {
+			port.publishWhileFirstWriteBlocked(serialComm, 10);
+
+			check(port.waitForConnections(2), "port reopened after the failed write");
+			check(port.waitForBytes(3 * FRAME_LENGTH + 5 + 7 * FRAME_LENGTH), "retried frames written");
+			byte[] before = port.connections.get(0).received.toByteArray();
+			check(before.length == 3 * FRAME_LENGTH + 5, "first connection took " + before.length + " bytes");
+			check(values(before).equals(range(0, 3)), "m000..m002 written whole before the break");
+			check(values(port.connections.get(1).received.toByteArray()).equals(range(3, 10)),
+			"m003..m009 written after the reconnect, in order");
+		} finally {
+			serialComm.close();
+		}
+		System.out.println("ok failedBurstKeptForRetry");
+	}
+
+	// Values of the whole frames in bytes, in order
+	private static List<String> values(byte[] bytes) {
+		SerialCommunication.FrameParser parser = new SerialCommunication.FrameParser("rec://parse");
+		System.arraycopy(bytes, 0, parser.buffer(), parser.writeOffset(), bytes.length);
+		parser.commit(bytes.length);
+		List<String> values = new ArrayList<>();
+		SerialCommunication.Message frame;
+		while ((frame = parser.next()) != null) {
+			values.add(new String(frame.getValue(), StandardCharsets.US_ASCII));
+		}
+		return values;
+	}
+
+	private static List<String> range(int from, int to) {
+		List<String> values = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			values.add(value(i));
+		}
+		return values;
+	}
+
+	private static String value(int i) {
+		return String.format("m%03d", i);
+	}
+
+	private static void check(boolean condition, String what) {
+		if (!condition) {
+			throw new AssertionError("Check failed: " + what);
+		}
+	}
+
+	// A port whose first write blocks until released, and whose first connection
+	// accepts `budget` bytes before it breaks (write returns -1)
+	static final class RecordingPort {
+		final String portName;
+		final List<byte[]> writes = Collections.synchronizedList(new ArrayList<>());
+		final List<Transport> connections = Collections.synchronizedList(new ArrayList<>());
+		private final CountDownLatch firstWrite = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final int firstBudget;
+
+		RecordingPort(String name, int firstBudget) {
+			this.portName = SCHEME + "://" + name;
+			this.firstBudget = firstBudget;
+			ports.put(name, this);
+		}
+
+		SerialCommunication open(int maxBatchBytes) {
+			SerialCommunication serialComm = new SerialCommunication();
+			serialComm.setWriteCoalescing(maxBatchBytes, 0);
+			serialComm.addSerialPort(portName, 115200, 8, 1, 0);
+			return serialComm;
+		}
+
+		// m000 blocks the writer in its first write; the rest queue up behind it
+		void publishWhileFirstWriteBlocked(SerialCommunication serialComm, int count) throws Exception {
+			serialComm.publishText("K", value(0), portName);
+			check(firstWrite.await(2, TimeUnit.SECONDS), "first write started");
+			for (int i = 1; i < count; i++) {
+				serialComm.publishText("K", value(i), portName);
+			}
+			release.countDown();
+		}
+
+		synchronized Transport newTransport() {
+			Transport transport = new Transport(connections.isEmpty() ? firstBudget : Integer.MAX_VALUE);
+			connections.add(transport);
+			return transport;
+		}
+
+		boolean waitForBytes(int total) throws InterruptedException {
+			return waitFor(() -> {
+				int bytes = 0;
+				synchronized (writes) {
+					for (byte[] write : writes) {
+						bytes += write.length;
+					}
+				}
+				return bytes >= total;
+			});
+		}
+
+		boolean waitForConnections(int count) throws InterruptedException {
+			return waitFor(() -> connections.size() >= count && connections.get(count - 1).open);
+		}
+
+		private boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (!condition.getAsBoolean()) {
+				if (System.currentTimeMillis() > deadline) {
+					return false;
+				}
+				Thread.sleep(10);
+			}
+			Thread.sleep(50); // a write past the expected ones would show up now
+			return true;
+		}
+
+		final class Transport implements SerialTransport {
+			final ByteArrayOutputStream received = new ByteArrayOutputStream();
+			private int budget;
+			volatile boolean open;
+
+			Transport(int budget) {
+				this.budget = budget;
+			}
+
+			public boolean open() {
+				open = true;
+				return true;
+			}
+
+			public boolean isOpen() {
+				return open;
+			}
+
+			public int read(byte[] buffer, int length, int offset) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return open ? 0 : -1;
+			}
+
+			public int available() {
+				return 0;
+			}
+
+			public int write(byte[] data, int length, int offset) {
+				if (firstWrite.getCount() > 0) {
+					firstWrite.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return -1;
+					}
+				}
+				if (budget == 0) {
+					return -1;
+				}
+				int n = Math.min(length, budget);
+				budget -= n;
+				byte[] written = Arrays.copyOfRange(data, offset, offset + n);
+				received.writeBytes(written);
+				writes.add(written);
+				return n;
+			}
+
+			public void close() {
+				open = false;
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/**
+* ClientConnection for the broadcast benchmark: send() only keeps the line,
+* about the cost of handing it to an outbound queue, so the fan-out itself
+* (subscription match, rendering, per-client locking) is what gets measured.
+*/
+class BenchClient implements SerialServer.ClientConnection {
+	private final String clientAddress;
+	private final boolean binaryProtocol;
+	private final SerialServer.ClientMetrics metrics;
+	private SerialServer.EncodedLine lastLine;
+	private long sent;
+
+	BenchClient(int id, boolean binaryProtocol) {
+		this.clientAddress = "bench-" + id;
+		this.binaryProtocol = binaryProtocol;
+		this.metrics = new SerialServer.ClientMetrics(this);
+	}
+
+	public String getClientAddress()     { return clientAddress; }
+	public long getLastHeartbeatTime()   { return System.currentTimeMillis(); }
+	public void updateHeartbeat()        { }
+	public long getLastSendTime()        { return System.currentTimeMillis(); }
+	public boolean isBinaryProtocol()    { return binaryProtocol; }
+	public void setBinaryProtocol()      { }
+	public void close()                  { }
+	public int getQueueDepth()           { return 0; }
+	public SerialServer.ClientMetrics getMetrics() { return metrics; }
+
+	public void send(SerialServer.EncodedLine line) {
+		lastLine = line;
+		sent++;
+		metrics.queued(line);
+	}
+
+	long getSent() {
+		return sent;
+	}
+}
@@ -0,0 +1,141 @@
+import java.util.List;
+
+/**
+* bench.ProjectHooks for the benchmarks: plain calls into the project, compiled
+* with it, so they cannot drift from its signatures.
+*/
+public class BenchHooks implements bench.ProjectHooks {
+
+	public BenchHooks() {
+	}
+
+	// SerialCommunication framing
+
+	public Object newSerialCommunication() {
+		return new SerialCommunication();
+	}
+
+	public void addSerialPort(Object serialComm, String port, int baudRate, int dataBits, int stopBits, int parity) {
+		((SerialCommunication) serialComm).addSerialPort(port, baudRate, dataBits, stopBits, parity);
+	}
+
+	public void close(Object serialComm) {
+		((SerialCommunication) serialComm).close();
+	}
+
+	public Object portManager(Object serialComm, String port) {
+		return ((SerialCommunication) serialComm).portManager(port);
+	}
+
+	public Object newMessage(String key, byte[] value, boolean binary, String sourcePort) {
+		return new SerialCommunication.Message(key, value,
+		binary ? SerialCommunication.MessageType.BINARY : SerialCommunication.MessageType.TEXT, sourcePort);
+	}
+
+	public int appendFrame(Object portManager, Object message, int offset) {
+		return ((SerialCommunication.SerialPortManager) portManager)
+		.appendFrame((SerialCommunication.Message) message, offset);
+	}
+
+	public Object newFrameParser(String port) {
+		return new SerialCommunication.FrameParser(port);
+	}
+
+	public byte[] parserBuffer(Object parser) {
+		return ((SerialCommunication.FrameParser) parser).buffer();
+	}
+
+	public int parserWriteOffset(Object parser) {
+		return ((SerialCommunication.FrameParser) parser).writeOffset();
+	}
+
+	public int parserWritableBytes(Object parser) {
+		return ((SerialCommunication.FrameParser) parser).writableBytes();
+	}
+
+	public void parserCommit(Object parser, int count) {
+		((SerialCommunication.FrameParser) parser).commit(count);
+	}
+
+	public Object parserNext(Object parser) {
+		return ((SerialCommunication.FrameParser) parser).next();
+	}
+
+	// SerialServer fan-out
+
+	public Object newServer() {
+		return new SerialServer(List.of());
+	}
+
+	public void shutdown(Object server) {
+		((SerialServer) server).shutdown();
+	}
+
+	public void registerClient(Object server, int id, boolean binaryProtocol) {
+		((SerialServer) server).register(new BenchClient(id, binaryProtocol));
+	}
+
+	public void broadcast(Object server, Object message) {
+		((SerialServer) server).broadcast((SerialCommunication.Message) message);
+	}
+
+	public Object renderReceivedLine(Object message) {
+		return SerialServer.EncodedLine.received((SerialCommunication.Message) message);
+	}
+
+	// HexCodec
+
+	public String hexEncode(byte[] data) {
+		return HexCodec.encode(data);
+	}
+
+	public int hexEncode(byte[] data, int offset, int length, byte[] dst, int dstOffset) {
+		return HexCodec.encode(data, offset, length, dst, dstOffset);
+	}
+
+	public byte[] hexDecode(CharSequence hex) {
+		return HexCodec.decode(hex);
+	}
+
+	public int hexDecode(CharSequence hex, int start, int end, byte[] dst, int dstOffset) {
+		return HexCodec.decode(hex, start, end, dst, dstOffset);
+	}
+
+	// SerialTcpClient send path
+
+	public Object newClientMessage(String type, String port, String key, String value) {
+		return new SerialTcpClient.Message(type, port, key, value);
+	}
+
+	public String format(Object clientMessage) {
+		return ((SerialTcpClient.Message) clientMessage).format();
+	}
+
+	public Object newMorseProgram(int unitMs) {
+		return new MorseProgram(MorseCodebook.ITU, unitMs);
+	}
+
+	public boolean append(Object program, char c) {
+		return ((MorseProgram) program).append(c);
+	}
+
+	public void reset(Object program) {
+		((MorseProgram) program).reset();
+	}
+
+	public int length(Object program) {
+		return ((MorseProgram) program).length();
+	}
+
+	public Object newWordCache(int maxEntries) {
+		return new MorseWordCache(MorseCodebook.ITU, maxEntries);
+	}
+
+	public Object wordCacheGet(Object cache, String word) {
+		return ((MorseWordCache) cache).get(word);
+	}
+
+	public void wordCacheClear(Object cache) {
+		((MorseWordCache) cache).clear();
+	}
+}
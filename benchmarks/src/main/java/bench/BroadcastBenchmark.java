@@ -0,0 +1,73 @@
+package bench;
+
+import static bench.ProjectHooks.INSTANCE;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+* SerialServer fan-out of one inbound serial message to every subscribed
+* client (subscription match, one rendering per protocol, per-client send),
+* and the RECEIVED line rendering on its own.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastBenchmark {
+
+	private static final String PORT = "/dev/ttyACM0";
+
+	@Param({"1", "16", "256"})
+	int clients;
+
+	// Every other client on the binary TCP protocol, so both renderings happen
+	@Param({"false", "true"})
+	boolean mixedProtocols;
+
+	private Object server;
+	private Object textMessage;
+	private Object binaryMessage;
+
+	@Setup
+	public void setup() {
+		server = INSTANCE.newServer();
+		for (int i = 0; i < clients; i++) {
+			INSTANCE.registerClient(server, i, mixedProtocols && i % 2 == 1);
+		}
+		textMessage = INSTANCE.newMessage("hello_ack", "world_ack".getBytes(), false, PORT);
+		byte[] program = new byte[128];
+		for (int i = 0; i < program.length; i++) {
+			program[i] = (byte) (0x80 | (i % 4));
+		}
+		binaryMessage = INSTANCE.newMessage("MORSE_PROGRAM_ack", program, true, PORT);
+	}
+
+	@TearDown
+	public void tearDown() {
+		INSTANCE.shutdown(server);
+	}
+
+	@Benchmark
+	public void broadcastText() {
+		INSTANCE.broadcast(server, textMessage);
+	}
+
+	@Benchmark
+	public void broadcastBinary() {
+		INSTANCE.broadcast(server, binaryMessage);
+	}
+
+	@Benchmark
+	public Object renderTextLine() {
+		return INSTANCE.renderReceivedLine(textMessage);
+	}
+
+	@Benchmark
+	public Object renderBinaryLine() {
+		return INSTANCE.renderReceivedLine(binaryMessage);
+	}
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import static bench.ProjectHooks.INSTANCE;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+* SerialTcpClient send path: Message.format() for every queued line, and
+* Morse encoding (MorseProgram runs, MorseWordCache lookups) for sendMorse.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClientBenchmark {
+
+	private static final String SENTENCE = "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG 0123456789";
+
+	private Object program;
+	private Object wordCache;
+	private String[] words;
+
+	@Setup
+	public void setup() {
+		program = INSTANCE.newMorseProgram(60);
+		wordCache = INSTANCE.newWordCache(256);
+		words = SENTENCE.split(" ");
+	}
+
+	@Benchmark
+	public String formatMessage() {
+		Object message = INSTANCE.newClientMessage("TEXT", "/dev/ttyACM0", "greeting", "hello world");
+		return INSTANCE.format(message);
+	}
+
+	@Benchmark
+	public int morseProgram() {
+		INSTANCE.reset(program);
+		int skipped = 0;
+		for (int i = 0; i < SENTENCE.length(); i++) {
+			if (!INSTANCE.append(program, SENTENCE.charAt(i))) {
+				skipped++;
+			}
+		}
+		return INSTANCE.length(program) + skipped;
+	}
+
+	@Benchmark
+	public void wordCacheHits(Blackhole bh) {
+		for (String word : words) {
+			bh.consume(INSTANCE.wordCacheGet(wordCache, word));
+		}
+	}
+
+	/**
+	* Every word encoded from scratch (includes one clear() per sentence).
+	*/
+	@Benchmark
+	public void wordCacheMisses(Blackhole bh) {
+		INSTANCE.wordCacheClear(wordCache);
+		for (String word : words) {
+			bh.consume(INSTANCE.wordCacheGet(wordCache, word));
+		}
+	}
+}
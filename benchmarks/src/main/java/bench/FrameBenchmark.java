@@ -0,0 +1,106 @@
+package bench;
+
+import static bench.ProjectHooks.INSTANCE;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+* SerialCommunication framing: SerialPortManager.appendFrame (outbound) and
+* FrameParser (inbound, fed the way the read thread feeds it).
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameBenchmark {
+
+	private static final String PORT = "loop://bench-frames?baud=0";
+	private static final String KEY = "LED_TOGGLE";
+	private static final int FRAMES_PER_STREAM = 64;
+
+	@Param({"8", "256", "2048"})
+	int valueSize;
+
+	private Object serialComm;
+	private Object portManager;
+	private Object message;
+	private byte[] value;
+
+	private Object parser;
+	private byte[] ring;
+	private byte[] stream; // FRAMES_PER_STREAM frames as they arrive from the device
+
+	@Setup
+	public void setup() {
+		serialComm = INSTANCE.newSerialCommunication();
+		INSTANCE.addSerialPort(serialComm, PORT, 115200, 8, 1, 0);
+		portManager = INSTANCE.portManager(serialComm, PORT);
+
+		value = new byte[valueSize];
+		for (int i = 0; i < value.length; i++) {
+			value[i] = (byte) i;
+		}
+		message = INSTANCE.newMessage(KEY, value, true, PORT);
+
+		parser = INSTANCE.newFrameParser(PORT);
+		ring = INSTANCE.parserBuffer(parser);
+		byte[] key = KEY.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer frames = ByteBuffer.allocate(FRAMES_PER_STREAM * (8 + key.length + value.length + 1));
+		for (int i = 0; i < FRAMES_PER_STREAM; i++) {
+			frames.putInt(key.length).putInt(value.length).put(key).put(value).put((byte) 1);
+		}
+		stream = frames.array();
+	}
+
+	@TearDown
+	public void tearDown() {
+		INSTANCE.close(serialComm);
+	}
+
+	/**
+	* Steady state: the key bytes are already cached on the message.
+	*/
+	@Benchmark
+	public int encode() {
+		return INSTANCE.appendFrame(portManager, message, 0);
+	}
+
+	/**
+	* A fresh message per frame, as publishText/publishBinary create them.
+	*/
+	@Benchmark
+	public int encodeNewMessage() {
+		Object fresh = INSTANCE.newMessage(KEY, value, true, PORT);
+		return INSTANCE.appendFrame(portManager, fresh, 0);
+	}
+
+	/**
+	* Per frame: copy into the ring as the driver would, then parse.
+	*/
+	@Benchmark
+	@OperationsPerInvocation(FRAMES_PER_STREAM)
+	public int decode(Blackhole bh) {
+		int frames = 0;
+		int offset = 0;
+		while (offset < stream.length) {
+			int n = Math.min(stream.length - offset, INSTANCE.parserWritableBytes(parser));
+			System.arraycopy(stream, offset, ring, INSTANCE.parserWriteOffset(parser), n);
+			INSTANCE.parserCommit(parser, n);
+			offset += n;
+
+			Object frame;
+			while ((frame = INSTANCE.parserNext(parser)) != null) {
+				bh.consume(frame);
+				frames++;
+			}
+		}
+		return frames;
+	}
+}
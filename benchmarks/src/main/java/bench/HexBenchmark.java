@@ -0,0 +1,74 @@
+package bench;
+
+import static bench.ProjectHooks.INSTANCE;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+* HexCodec, used by SerialServer for BINARY commands and RECEIVED lines and by
+* SerialTcpClient for binary sends.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HexBenchmark {
+
+	@Param({"16", "256", "2048"})
+	int size;
+
+	private byte[] data;
+	private byte[] encoded;
+	private String hex;
+	private String spacedHex; // "01 02 03 ...", as typed at the client prompt
+	private byte[] decoded;
+
+	@Setup
+	public void setup() {
+		data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		encoded = new byte[size * 2];
+		decoded = new byte[size];
+		hex = INSTANCE.hexEncode(data);
+		StringBuilder sb = new StringBuilder(size * 3);
+		for (int i = 0; i < hex.length(); i += 2) {
+			if (i > 0) sb.append(' ');
+			sb.append(hex, i, i + 2);
+		}
+		spacedHex = sb.toString();
+	}
+
+	@Benchmark
+	public String encodeToString() {
+		return INSTANCE.hexEncode(data);
+	}
+
+	/**
+	* Straight into a caller's buffer, as EncodedLine.received does.
+	*/
+	@Benchmark
+	public int encodeIntoBuffer() {
+		return INSTANCE.hexEncode(data, 0, data.length, encoded, 0);
+	}
+
+	@Benchmark
+	public byte[] decodeToArray() {
+		return INSTANCE.hexDecode(hex);
+	}
+
+	@Benchmark
+	public byte[] decodeSpaced() {
+		return INSTANCE.hexDecode(spacedHex);
+	}
+
+	@Benchmark
+	public int decodeIntoBuffer() {
+		return INSTANCE.hexDecode(hex, 0, hex.length(), decoded, 0);
+	}
+}
@@ -0,0 +1,103 @@
+package bench;
+
+/**
+* What the benchmarks call in the project.
+*
+* The project lives in the default package, which a named package (and JMH
+* requires one for benchmarks) cannot import. BenchHooks, in the default
+* package, implements this interface with direct calls, so a signature change
+* in the project breaks the build there instead of failing at run time.
+* Project types are passed as Object; only BenchHooks casts them.
+*/
+public interface ProjectHooks {
+
+	ProjectHooks INSTANCE = load();
+
+	// SerialCommunication framing
+
+	Object newSerialCommunication();
+
+	void addSerialPort(Object serialComm, String port, int baudRate, int dataBits, int stopBits, int parity);
+
+	void close(Object serialComm);
+
+	/**
+	* The SerialPortManager of a port added with addSerialPort
+	*/
+	Object portManager(Object serialComm, String port);
+
+	Object newMessage(String key, byte[] value, boolean binary, String sourcePort);
+
+	int appendFrame(Object portManager, Object message, int offset);
+
+	Object newFrameParser(String port);
+
+	byte[] parserBuffer(Object parser);
+
+	int parserWriteOffset(Object parser);
+
+	int parserWritableBytes(Object parser);
+
+	void parserCommit(Object parser, int count);
+
+	/**
+	* Next complete frame as a Message, or null
+	*/
+	Object parserNext(Object parser);
+
+	// SerialServer fan-out
+
+	Object newServer();
+
+	void shutdown(Object server);
+
+	/**
+	* Register a BenchClient (send() only keeps the line)
+	*/
+	void registerClient(Object server, int id, boolean binaryProtocol);
+
+	void broadcast(Object server, Object message);
+
+	/**
+	* EncodedLine.received(message)
+	*/
+	Object renderReceivedLine(Object message);
+
+	// HexCodec
+
+	String hexEncode(byte[] data);
+
+	int hexEncode(byte[] data, int offset, int length, byte[] dst, int dstOffset);
+
+	byte[] hexDecode(CharSequence hex);
+
+	int hexDecode(CharSequence hex, int start, int end, byte[] dst, int dstOffset);
+
+	// SerialTcpClient send path
+
+	Object newClientMessage(String type, String port, String key, String value);
+
+	String format(Object clientMessage);
+
+	Object newMorseProgram(int unitMs);
+
+	boolean append(Object program, char c);
+
+	void reset(Object program);
+
+	int length(Object program);
+
+	Object newWordCache(int maxEntries);
+
+	Object wordCacheGet(Object cache, String word);
+
+	void wordCacheClear(Object cache);
+
+	private static ProjectHooks load() {
+		try {
+			return (ProjectHooks) Class.forName("BenchHooks").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("BenchHooks not found; build the benchmarks module", e);
+		}
+	}
+}
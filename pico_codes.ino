@@ -195,6 +195,7 @@ namespace namo {
 // Our NAMO Serial Protocol instance
 namo::SerialProtocol serialProto;
 volatile bool core0_led_state = false;  // Tracks LED state for core 0
+bool toggleCore1LED();
 #ifdef PICO_WIRELESS_BOARD
   volatile bool core1_led_state = false;  // Tracks LED state for core 1 (Wireless LED)
 #endif
@@ -208,6 +209,16 @@ bool toggleCore0LED() {
   return core0_led_state;                                                     
 }
 
+/**
+ * @brief Drive both LEDs to an explicit level (used by MORSE_PROGRAM)
+ */
+void setLEDs(bool on) {
+  if (core0_led_state != on) toggleCore0LED();
+#ifdef PICO_WIRELESS_BOARD
+  if (core1_led_state != on) toggleCore1LED();
+#endif
+}
+
 /**
  * @brief Initialize core 0 peripherals and timer 
  */
@@ -291,6 +302,19 @@ void processMsg(const char* key, const uint8_t* value, uint32_t valueLen, uint8_
 			}
 		}
 	}
+	// MORSE_PROGRAM: [unitMs hi][unitMs lo] then one byte per run,
+	// bit 7 = LED level, bits 0..6 = duration in units
+	else if (msgType == namo::SerialProtocol::MSG_TYPE_BINARY && strcmp(key, "MORSE_PROGRAM") == 0)
+	{
+		if (valueLen > 2) {
+			uint32_t unitMs = ((uint32_t)value[0] << 8) | value[1];
+			for (uint32_t i = 2; i < valueLen; i++) {
+				setLEDs((value[i] & 0x80) != 0);
+				delay((value[i] & 0x7F) * unitMs);
+			}
+			setLEDs(false);
+		}
+	}
 }
 
 void onMessageReceived(const char* key, const uint8_t* value, uint32_t valueLen, uint8_t msgType) 